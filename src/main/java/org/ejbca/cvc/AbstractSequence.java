@@ -1,209 +1,452 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import org.ejbca.cvc.exception.ConstructionException;
-
-/**
- * Represents a CVC sequence, i e contains one or more subfields
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: AbstractSequence.java 18597 2014-03-13 09:36:12Z samuellb $
- *
- */
-public abstract class AbstractSequence extends CVCObject {
-
-    private static final long serialVersionUID = 1L;
-
-    private final Map<CVCTagEnum, CVCObject> subfields = new HashMap<CVCTagEnum, CVCObject>();
-    private final List<CVCTagEnum> allowedFields;
-
-    /**
-     * Constructor, must supply the tag
-     * 
-     * @param type
-     */
-    AbstractSequence(final CVCTagEnum type) {
-	super(type);
-	this.allowedFields = Arrays.asList(getAllowedFields());
-    }
-
-    /**
-     * Adds a subfield to this sequence. Nothing happens if the argument is null.
-     * 
-     * @param field
-     * @throws ConstructionException
-     *             if the supplied field is not allowed in this sequence.
-     */
-    void addSubfield(final CVCObject field) throws ConstructionException {
-	if (field != null) {
-	    if (allowedFields.contains(field.getTag())) {
-		if (subfields.containsKey(field.getTag())) {
-		    throw new ConstructionException(
-			    "Field " + field.getTag() + " has already been added to " + getClass().getName());
-		} else {
-		    field.setParent(this);
-		    subfields.put(field.getTag(), field);
-		}
-	    } else {
-		throw new ConstructionException("Field " + field.getTag() + " not allowed in " + getClass().getName());
-	    }
-	}
-    }
-
-    /**
-     * Returns tags for all allowed subfields, in the same order as they appear when
-     * DER-encoded
-     * 
-     * @return
-     */
-    protected abstract CVCTagEnum[] getAllowedFields();
-
-    /**
-     * Returns a mandatory subfield
-     * 
-     * @param fieldTag
-     * @return
-     * @throws NoSuchFieldException
-     *             if the subfield hasn't been added
-     */
-    CVCObject getSubfield(final CVCTagEnum fieldTag) throws NoSuchFieldException {
-	final CVCObject subfield = subfields.get(fieldTag);
-	if (subfield == null) {
-	    throw new NoSuchFieldException("Could not find subfield " + fieldTag);
-	} else {
-	    return subfield;
-	}
-    }
-
-    /**
-     * Returns optional subfield (no Exception is thrown).
-     * 
-     * @param tag
-     * @return AbstractDataField or null if the field hasn't been added
-     */
-    CVCObject getOptionalSubfield(final CVCTagEnum tag) {
-	return subfields.get(tag);
-    }
-
-    /**
-     * Returns all added subfields
-     * 
-     * @return
-     */
-    protected Collection<CVCObject> getSubfields() {
-	return subfields.values();
-    }
-
-    @Override
-    public int encode(DataOutputStream pOut) throws IOException {
-	// Iterate over the subfields, sum up the lengths and write it the header
-
-	// Get a local DataOutputStream to write the subfields to,
-	// so we know have many bytes we have written
-	ByteArrayOutputStream bout = new ByteArrayOutputStream();
-	DataOutputStream dout = new DataOutputStream(bout);
-	int seqLength = 0;
-	for (CVCObject subfield : getEncodableFields()) {
-	    seqLength += subfield.encode(dout);
-	}
-	dout.close();
-
-	int tag = getTag().getValue();
-	int s0 = pOut.size();
-	pOut.write(toByteArray(tag));
-	pOut.write(encodeLength(seqLength));
-	pOut.write(bout.toByteArray());
-
-	return pOut.size() - s0;
-    }
-
-    /**
-     * Returns all subfields for DER-encoding
-     * 
-     * @return
-     */
-    protected List<CVCObject> getEncodableFields() {
-	return getOrderedSubfields();
-    }
-
-    /**
-     * Helper for creating a DER-encoded byte array.
-     * 
-     * @return
-     * @throws IOException
-     */
-    public byte[] getDEREncoded() throws IOException {
-
-	ByteArrayOutputStream bout = null;
-	try {
-	    bout = new ByteArrayOutputStream();
-	    DataOutputStream dout = new DataOutputStream(bout);
-
-	    // Encode!
-	    encode(dout);
-
-	} finally {
-	    if (bout != null)
-		bout.close();
-	}
-	return bout.toByteArray();
-    }
-
-    /**
-     * Returns this object as text, including tag value
-     * 
-     * @param tab
-     * @return
-     */
-    public String getAsText(String tab) {
-	return getAsText(tab, true);
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public String getAsText(String tab, boolean showTagNo) {
-	StringBuffer sb = new StringBuffer();
-	sb.append(super.getAsText(tab, showTagNo));
-	for (CVCObject field : getOrderedSubfields()) {
-	    sb.append(NEWLINE);
-	    sb.append(field.getAsText(tab + "   ", showTagNo));
-	}
-	return sb.toString();
-    }
-
-    // Returns a List of ordered subfields
-    private List<CVCObject> getOrderedSubfields() {
-	List<CVCObject> orderedList = new ArrayList<CVCObject>();
-	for (CVCTagEnum tag : allowedFields) {
-	    CVCObject subfield = subfields.get(tag);
-	    // Bara f�r att ett f�lt �r till�tet kanske det inte m�ste finnas
-	    if (subfield != null) {
-		orderedList.add(subfield);
-	    }
-	}
-	return orderedList;
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.internal.tlv.Length;
+import org.ejbca.cvc.internal.tlv.Tag;
+
+/**
+ * Represents a CVC sequence, i e contains one or more subfields
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: AbstractSequence.java 18597 2014-03-13 09:36:12Z samuellb $
+ *
+ */
+public abstract class AbstractSequence extends CVCObject {
+
+    private static final long serialVersionUID = 2L;
+
+    // Subfields by their slot in the schema, i e in encoding order
+    private final CVCObject[] subfields;
+
+    // The DER-encoding this sequence was parsed from, null if it has been created
+    // or modified in code
+    private transient byte[] encodedSource;
+    private transient int encodedOffset;
+    private transient int encodedLength;
+
+    // Set by freeze() after all other state has been written
+    private transient volatile boolean frozen;
+
+    /**
+     * Constructor, must supply the tag
+     * 
+     * @param type
+     */
+    AbstractSequence(final CVCTagEnum type) {
+	super(type);
+	this.subfields = new CVCObject[getSchema().size()];
+    }
+
+    /**
+     * Adds a subfield to this sequence. Nothing happens if the argument is null.
+     * 
+     * @param field
+     * @throws ConstructionException
+     *             if the supplied field is not allowed in this sequence.
+     */
+    void addSubfield(final CVCObject field) throws ConstructionException {
+	checkNotFrozen();
+	if (field != null) {
+	    int slot = getSchema().getSlot(field.getTag());
+	    if (slot >= 0) {
+		if (subfields[slot] != null) {
+		    throw new ConstructionException(
+			    "Field " + field.getTag() + " has already been added to " + getClass().getName());
+		} else {
+		    field.setParent(this);
+		    subfields[slot] = field;
+		    invalidateEncoded();
+		}
+	    } else {
+		throw new ConstructionException("Field " + field.getTag() + " not allowed in " + getClass().getName());
+	    }
+	}
+    }
+
+    /**
+     * Retains the DER-encoding this sequence was parsed from. As long as this
+     * sequence and its subfields are unmodified these exact bytes are returned
+     * when encoding, instead of encoding the subfields again. The array is shared,
+     * not copied, so it must not be modified afterwards.
+     * 
+     * @param source
+     * @param offset
+     *            start of the tag in 'source'
+     * @param length
+     *            length including tag and length
+     */
+    void setEncoded(byte[] source, int offset, int length) {
+	this.encodedSource = source;
+	this.encodedOffset = offset;
+	this.encodedLength = length;
+    }
+
+    /**
+     * Returns true if the DER-encoding from parsing is retained
+     * 
+     * @return
+     */
+    boolean hasEncoded() {
+	return encodedSource != null;
+    }
+
+    /**
+     * Writes the retained DER-encoding to 'target'
+     * 
+     * @param target
+     * @see #hasEncoded()
+     */
+    void writeEncoded(ByteBuffer target) {
+	target.put(encodedSource, encodedOffset, encodedLength);
+    }
+
+    /**
+     * Returns the length of the retained DER-encoding
+     * 
+     * @return
+     * @see #hasEncoded()
+     */
+    int getEncodedLength() {
+	return encodedLength;
+    }
+
+    /**
+     * Returns the DER-encoding of this sequence as a heap buffer. The retained
+     * encoding from parsing is wrapped without copying, the buffer must not be
+     * modified.
+     *
+     * @return
+     */
+    ByteBuffer getDEREncodedBuffer() {
+	byte[] source = encodedSource;
+	if (source != null) {
+	    return ByteBuffer.wrap(source, encodedOffset, encodedLength);
+	}
+	return ByteBuffer.wrap(DEREncoder.encode(this));
+    }
+
+    /**
+     * Makes this sequence and all its subfields immutable, so that it can be
+     * shared between threads without locking. Methods that would modify a
+     * frozen object throw UnsupportedOperationException, and a frozen object
+     * can't be added to another sequence.
+     * <p>
+     * The DER-encoding and the values derived from the subfields, like the
+     * fingerprint and parameters of a public key, are computed and cached before
+     * freezing. All this state is written before the frozen flag, which is
+     * volatile: a thread that sees {@link #isFrozen()} return true also sees
+     * the complete state. Frozen certificates should still be published through
+     * a final or volatile field or a concurrent collection. Serialized copies are
+     * not frozen.
+     * 
+     * @return this sequence
+     */
+    public AbstractSequence freeze() {
+	if (!frozen) {
+	    synchronized (this) {
+		if (!frozen) {
+		    if (encodedSource == null) {
+			retainEncoding(ByteBuffer.wrap(DEREncoder.encode(this)));
+		    }
+		    freezeSubtree();
+		}
+	    }
+	}
+	return this;
+    }
+
+    @Override
+    public boolean isFrozen() {
+	// All sequences of a frozen tree are frozen
+	return frozen;
+    }
+
+    /*
+     * Retains the DER-encoding of this sequence and its subsequences from 'der',
+     * which is positioned at the tag of this sequence and is left at its end
+     */
+    private void retainEncoding(ByteBuffer der) {
+	int start = der.position();
+	Tag.parse(der);
+	int end = Length.parse(der).getLength() + der.position();
+	int mask = getEncodableMask();
+	for (int slot = 0; slot < subfields.length; slot++) {
+	    if ((mask & (1 << slot)) == 0) {
+		continue;
+	    }
+	    if (subfields[slot] instanceof AbstractSequence) {
+		((AbstractSequence) subfields[slot]).retainEncoding(der);
+	    } else {
+		Tag.parse(der);
+		int length = Length.parse(der).getLength();
+		der.position(der.position() + length);
+	    }
+	}
+	setEncoded(der.array(), der.arrayOffset() + start, end - start);
+	der.position(end);
+    }
+
+    // Freezes the subsequences before this sequence
+    private void freezeSubtree() {
+	for (CVCObject subfield : subfields) {
+	    if (subfield instanceof AbstractSequence) {
+		((AbstractSequence) subfield).freezeSubtree();
+	    }
+	}
+	cacheValues();
+	frozen = true;
+    }
+
+    /**
+     * Computes the values cached by subclasses before this sequence is frozen
+     */
+    void cacheValues() {
+    }
+
+    @Override
+    void invalidateEncoded() {
+	encodedSource = null;
+	super.invalidateEncoded();
+    }
+
+    /**
+     * Feeds the DER-encoding of this sequence to 'signature'. The retained
+     * encoding from parsing is passed on without copying.
+     * 
+     * @param signature
+     * @throws SignatureException
+     */
+    void updateSignature(Signature signature) throws SignatureException {
+	byte[] source = encodedSource;
+	if (source != null) {
+	    signature.update(source, encodedOffset, encodedLength);
+	} else {
+	    signature.update(DEREncoder.encode(this));
+	}
+    }
+
+    /**
+     * Returns tags for all allowed subfields, in the same order as they appear when
+     * DER-encoded
+     * 
+     * @return
+     */
+    protected abstract CVCTagEnum[] getAllowedFields();
+
+    /**
+     * Returns the compiled allowed subfields, the same for all instances of a
+     * class
+     * 
+     * @return
+     * @see #getAllowedFields()
+     */
+    abstract SequenceSchema getSchema();
+
+    /**
+     * Returns a mandatory subfield
+     * 
+     * @param fieldTag
+     * @return
+     * @throws NoSuchFieldException
+     *             if the subfield hasn't been added
+     */
+    CVCObject getSubfield(final CVCTagEnum fieldTag) throws NoSuchFieldException {
+	final CVCObject subfield = getOptionalSubfield(fieldTag);
+	if (subfield == null) {
+	    throw new NoSuchFieldException("Could not find subfield " + fieldTag);
+	} else {
+	    return subfield;
+	}
+    }
+
+    /**
+     * Returns optional subfield (no Exception is thrown).
+     * 
+     * @param tag
+     * @return AbstractDataField or null if the field hasn't been added
+     */
+    CVCObject getOptionalSubfield(final CVCTagEnum tag) {
+	int slot = getSchema().getSlot(tag);
+	return slot < 0 ? null : subfields[slot];
+    }
+
+    /**
+     * Returns the subfield in 'slot' of the schema
+     * 
+     * @param slot
+     * @return the subfield or null if it hasn't been added
+     */
+    CVCObject getSubfieldAt(int slot) {
+	return subfields[slot];
+    }
+
+    /**
+     * Returns the number of slots, i e allowed subfields
+     * 
+     * @return
+     */
+    int getSlotCount() {
+	return subfields.length;
+    }
+
+    /**
+     * Returns the bit of the slot of a mandatory subfield, for
+     * {@link #getEncodableMask()}
+     * 
+     * @param fieldTag
+     * @return
+     * @throws NoSuchFieldException
+     *             if the subfield hasn't been added
+     */
+    int getSlotBit(final CVCTagEnum fieldTag) throws NoSuchFieldException {
+	int slot = getSchema().getSlot(fieldTag);
+	if (slot < 0 || subfields[slot] == null) {
+	    throw new NoSuchFieldException("Could not find subfield " + fieldTag);
+	}
+	return 1 << slot;
+    }
+
+    /**
+     * Returns all added subfields
+     * 
+     * @return
+     */
+    protected Collection<CVCObject> getSubfields() {
+	return getSubfields(getPresentMask());
+    }
+
+    @Override
+    public int encode(DataOutputStream pOut) throws IOException {
+	byte[] encoded = getDEREncoded();
+	pOut.write(encoded);
+	return encoded.length;
+    }
+
+    /**
+     * Returns all subfields for DER-encoding
+     * 
+     * @return
+     */
+    protected List<CVCObject> getEncodableFields() {
+	return getSubfields(getEncodableMask());
+    }
+
+    /**
+     * Returns the slots of the subfields to DER-encode as a bitmask, bit 'n' for
+     * slot 'n'. By default all added subfields are encoded.
+     * 
+     * @return
+     */
+    int getEncodableMask() {
+	return getPresentMask();
+    }
+
+    /**
+     * Helper for creating a DER-encoded byte array. The sizes of all subfields are
+     * computed first so the result is written into a single array of the exact
+     * size. A parsed sequence that hasn't been modified returns a copy of the
+     * bytes it was parsed from.
+     * 
+     * @return
+     * @throws IOException
+     */
+    public byte[] getDEREncoded() throws IOException {
+	return DEREncoder.encode(this);
+    }
+
+    /**
+     * Returns the number of bytes of the DER-encoding of this sequence, including
+     * tag and length
+     * 
+     * @return
+     */
+    public int getDEREncodedLength() {
+	return new DEREncoder(this).size();
+    }
+
+    /**
+     * DER-encodes this sequence at the current position of 'target', which is
+     * advanced by the number of written bytes. Nothing is written if 'target' is
+     * too small.
+     * 
+     * @param target
+     * @return number of written bytes
+     * @throws java.nio.BufferOverflowException
+     *             if the remaining space in 'target' is too small
+     */
+    public int encodeTo(ByteBuffer target) {
+	DEREncoder encoder = new DEREncoder(this);
+	encoder.write(target);
+	return encoder.size();
+    }
+
+    /**
+     * Returns this object as text, including tag value
+     * 
+     * @param tab
+     * @return
+     */
+    public String getAsText(String tab) {
+	return getAsText(tab, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getAsText(String tab, boolean showTagNo) {
+	StringBuffer sb = new StringBuffer();
+	sb.append(super.getAsText(tab, showTagNo));
+	for (CVCObject field : subfields) {
+	    // Bara f�r att ett f�lt �r till�tet kanske det inte m�ste finnas
+	    if (field != null) {
+		sb.append(NEWLINE);
+		sb.append(field.getAsText(tab + "   ", showTagNo));
+	    }
+	}
+	return sb.toString();
+    }
+
+    // Returns the slots of the added subfields as a bitmask
+    private int getPresentMask() {
+	int mask = 0;
+	for (int slot = 0; slot < subfields.length; slot++) {
+	    if (subfields[slot] != null) {
+		mask |= 1 << slot;
+	    }
+	}
+	return mask;
+    }
+
+    // Returns the subfields in the slots of 'mask', in encoding order
+    private List<CVCObject> getSubfields(int mask) {
+	List<CVCObject> result = new ArrayList<CVCObject>(Integer.bitCount(mask));
+	for (int slot = 0; slot < subfields.length; slot++) {
+	    if ((mask & (1 << slot)) != 0) {
+		result.add(subfields[slot]);
+	    }
+	}
+	return result;
+    }
+
+}
@@ -0,0 +1,189 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Verifies the signatures of many certificates in parallel.
+ * <p>
+ * The certificates are split into chunks which are verified by the tasks of
+ * an executor, e.g. a {@link ForkJoinPool}. Every worker thread reuses its own
+ * Signature instances and CVC issuer keys are converted to keys of the
+ * provider only once (see {@link CVCPublicKey#getNativeKey(String)}). A
+ * failing certificate does not stop the batch, the outcome of every
+ * certificate is returned as a {@link VerificationResult}.
+ * <p>
+ * The executor is not shut down by this class.
+ */
+public final class BatchVerifier {
+
+    // Number of chunks per thread, so that threads finishing early can take over
+    // work from slower ones
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final String provider;
+    private final boolean lightweight;
+    private final HotKeyRegistry hotKeys;
+
+    /**
+     * Creates a verifier running on 'executor' using the security provider
+     * 'provider', or the preferred provider of each algorithm if null
+     * 
+     * @param executor
+     * @param provider
+     */
+    public BatchVerifier(ExecutorService executor, String provider) {
+	this(executor, provider, false, null);
+    }
+
+    /**
+     * Creates a verifier running on 'executor' which verifies with the Bouncy
+     * Castle lightweight API, see
+     * {@link CVCertificate#verifyLightweight(PublicKey)}
+     * 
+     * @param executor
+     * @param hotKeys
+     *            registry of keys with precomputed tables, or null
+     * @return
+     */
+    public static BatchVerifier createLightweight(ExecutorService executor, HotKeyRegistry hotKeys) {
+	return new BatchVerifier(executor, null, true, hotKeys);
+    }
+
+    private BatchVerifier(ExecutorService executor, String provider, boolean lightweight, HotKeyRegistry hotKeys) {
+	if (executor == null) {
+	    throw new IllegalArgumentException("executor is null");
+	}
+	this.executor = executor;
+	this.parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+		: Runtime.getRuntime().availableProcessors();
+	this.provider = provider;
+	this.lightweight = lightweight;
+	this.hotKeys = hotKeys;
+    }
+
+    /**
+     * Verifies certificates which are all issued by the same key
+     * 
+     * @param certificates
+     * @param issuerKey
+     * @return one result per certificate, in the iteration order of
+     *         'certificates'
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting
+     */
+    public List<VerificationResult> verify(Collection<? extends CVCertificate> certificates, PublicKey issuerKey)
+	    throws InterruptedException {
+	PublicKey[] keys = new PublicKey[certificates.size()];
+	Arrays.fill(keys, issuerKey);
+	return verify(certificates, keys);
+    }
+
+    /**
+     * Verifies certificates of different issuers. The issuer key of each
+     * certificate is looked up in 'issuerKeys' using the concatenated 'Certificate
+     * Authority Reference' of the certificate (see
+     * {@link ReferenceField#getConcatenated()}).
+     * 
+     * @param certificates
+     * @param issuerKeys
+     * @return one result per certificate, in the iteration order of
+     *         'certificates'
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting
+     */
+    public List<VerificationResult> verify(Collection<? extends CVCertificate> certificates,
+	    Map<String, ? extends PublicKey> issuerKeys) throws InterruptedException {
+	PublicKey[] keys = new PublicKey[certificates.size()];
+	int i = 0;
+	for (CVCertificate certificate : certificates) {
+	    try {
+		// The CA reference is optional in requests, such entries get no key
+		CAReferenceField authorityReference = certificate.getCertificateBody().getAuthorityReference();
+		if (authorityReference != null) {
+		    keys[i] = issuerKeys.get(authorityReference.getConcatenated());
+		}
+	    } catch (NoSuchFieldException e) {
+		// Reported as corrupt certificate when verifying
+	    }
+	    i++;
+	}
+	return verify(certificates, keys);
+    }
+
+    // Verifies certificates[i] with keys[i]
+    private List<VerificationResult> verify(Collection<? extends CVCertificate> certificates,
+	    final PublicKey[] keys) throws InterruptedException {
+	final CVCertificate[] certs = certificates.toArray(new CVCertificate[certificates.size()]);
+	final VerificationResult[] results = new VerificationResult[certs.length];
+
+	int chunkSize = Math.max(1, (certs.length + parallelism * CHUNKS_PER_THREAD - 1)
+		/ (parallelism * CHUNKS_PER_THREAD));
+	List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+	for (int start = 0; start < certs.length; start += chunkSize) {
+	    final int from = start;
+	    final int to = Math.min(start + chunkSize, certs.length);
+	    tasks.add(new Callable<Void>() {
+		@Override
+		public Void call() {
+		    for (int i = from; i < to; i++) {
+			results[i] = new VerificationResult(certs[i], verify(certs[i], keys[i]));
+		    }
+		    return null;
+		}
+	    });
+	}
+
+	for (Future<Void> future : executor.invokeAll(tasks)) {
+	    try {
+		future.get();
+	    } catch (ExecutionException e) {
+		// Every failure of a certificate is caught by the task itself
+		throw new IllegalStateException("Verification task failed", e.getCause());
+	    }
+	}
+	return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    // Verifies one certificate, returns null if the signature is valid
+    private Exception verify(CVCertificate certificate, PublicKey issuerKey) {
+	if (issuerKey == null) {
+	    return new CertificateException("No issuer key for certificate");
+	}
+	try {
+	    if (lightweight) {
+		certificate.verifyLightweight(issuerKey, hotKeys);
+	    } else {
+		certificate.verify(issuerKey, provider);
+	    }
+	    return null;
+	} catch (Exception e) {
+	    return e;
+	}
+    }
+}
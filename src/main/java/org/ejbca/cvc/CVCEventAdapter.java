@@ -0,0 +1,38 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.ByteBuffer;
+
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Empty implementation of {@link CVCEventHandler} that enters all sequences.
+ * Subclasses override the methods they need.
+ */
+public abstract class CVCEventAdapter implements CVCEventHandler {
+
+    @Override
+    public boolean startSequence(CVCTagEnum tag, int offset, int length) throws ParseException {
+	return true;
+    }
+
+    @Override
+    public void field(CVCTagEnum tag, ByteBuffer value) throws ParseException {
+    }
+
+    @Override
+    public void endSequence(CVCTagEnum tag) throws ParseException {
+    }
+
+}
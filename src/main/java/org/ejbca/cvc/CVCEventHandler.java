@@ -0,0 +1,62 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.ByteBuffer;
+
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Receives the structure of a DER-encoded CVC object from
+ * {@link CVCEventParser}, in the same order as the fields are encoded.
+ * 
+ * @see CVCEventAdapter
+ */
+public interface CVCEventHandler {
+
+    /**
+     * Called at the start of a sequence. The subfields and
+     * {@link #endSequence(CVCTagEnum)} are only reported if this method returns
+     * true, otherwise the parser skips the sequence by its length.
+     * 
+     * @param tag
+     * @param offset
+     *            position of the tag in the parsed buffer
+     * @param length
+     *            length of the sequence including tag and length
+     * @return false to skip the subfields of this sequence
+     */
+    boolean startSequence(CVCTagEnum tag, int offset, int length) throws ParseException;
+
+    /**
+     * Called for a data field. 'value' is positioned at the value of the field
+     * and limited to its end. The same read-only buffer is reused for all fields,
+     * so it is only valid during this call and must be sliced or copied if the
+     * value is needed later. The handler may change position and limit.
+     * <p>
+     * Note that EXPONENT and COEFFICIENT_A have the same tag value, both are
+     * reported as EXPONENT.
+     * 
+     * @param tag
+     * @param value
+     */
+    void field(CVCTagEnum tag, ByteBuffer value) throws ParseException;
+
+    /**
+     * Called at the end of a sequence whose subfields have been reported
+     * 
+     * @param tag
+     */
+    void endSequence(CVCTagEnum tag) throws ParseException;
+
+}
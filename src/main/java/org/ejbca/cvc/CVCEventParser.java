@@ -0,0 +1,111 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.ejbca.cvc.exception.ParseException;
+import org.ejbca.cvc.internal.tlv.Length;
+import org.ejbca.cvc.internal.tlv.Tag;
+
+/**
+ * Event based decoder for DER-encoded CVC objects.
+ * <p>
+ * In contrast to {@link CertificateParser} no CVCObjects are created and no
+ * data is copied, the structure is reported to a {@link CVCEventHandler}
+ * instead. Only tags and lengths are validated: the parser doesn't check
+ * which fields are allowed in a sequence or whether the values can be
+ * decoded. Sequences nested deeper than any valid CVC object are rejected.
+ */
+public final class CVCEventParser {
+
+    // Valid objects nest at most 4 sequences: authenticated request,
+    // certificate, body, public key
+    private static final int MAX_DEPTH = 8;
+
+    // Only static methods...
+    private CVCEventParser() {
+    }
+
+    /**
+     * Reports the CVC object in 'data' to 'handler'
+     * 
+     * @param data
+     * @param handler
+     */
+    public static void parse(byte[] data, CVCEventHandler handler) throws ParseException {
+	parse(ByteBuffer.wrap(data), handler);
+    }
+
+    /**
+     * Reports the CVC object starting at the current position of 'data' to
+     * 'handler'. The position is advanced past the object, the offsets passed to
+     * the handler are positions in 'data'. The contents of 'data' are not
+     * modified.
+     * 
+     * @param data
+     * @param handler
+     */
+    public static void parse(ByteBuffer data, CVCEventHandler handler) throws ParseException {
+	ByteBuffer buffer = data.asReadOnlyBuffer();
+	try {
+	    parseObject(buffer, buffer.limit(), buffer.duplicate(), handler, 1);
+	} catch (BufferUnderflowException e) {
+	    throw new ParseException(e);
+	} catch (IllegalArgumentException e) {
+	    throw new ParseException(e);
+	} catch (IllegalStateException e) {
+	    throw new ParseException(e);
+	} catch (UnsupportedOperationException e) {
+	    throw new ParseException(e);
+	}
+	data.position(buffer.position());
+    }
+
+    /*
+     * Reports the object at the current position of 'buffer', which must end
+     * before 'limit'. 'value' is the buffer passed to the handler for all data
+     * fields. The position of 'buffer' is left at the end of the object.
+     * 'depth' is the nesting level of the object, starting at 1.
+     */
+    private static void parseObject(ByteBuffer buffer, int limit, ByteBuffer value, CVCEventHandler handler,
+	    int depth) throws ParseException {
+	int start = buffer.position();
+	CVCTagEnum tag = CertificateParser.findTagFromValue(CertificateParser.tagValue(Tag.parse(buffer)));
+	int length = Length.parse(buffer).getLength();
+	int valueStart = buffer.position();
+	if (length > limit - valueStart) {
+	    throw new ParseException("Length of " + tag + " exceeds the enclosing data: " + length);
+	}
+	int end = valueStart + length;
+
+	if (tag.isSequence()) {
+	    if (depth > MAX_DEPTH) {
+		throw new ParseException("Sequences nested deeper than " + MAX_DEPTH + " levels");
+	    }
+	    if (handler.startSequence(tag, start, end - start)) {
+		while (buffer.position() < end) {
+		    parseObject(buffer, end, value, handler, depth + 1);
+		}
+		handler.endSequence(tag);
+	    }
+	} else {
+	    value.limit(end);
+	    value.position(valueStart);
+	    handler.field(tag, value);
+	}
+	buffer.position(end);
+    }
+
+}
@@ -0,0 +1,169 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.exception.ParseException;
+import org.ejbca.cvc.internal.tlv.Length;
+import org.ejbca.cvc.internal.tlv.Tag;
+
+/**
+ * Incremental decoder of concatenated DER-encoded CVC objects (certificates,
+ * requests and authenticated requests) arriving in chunks of arbitrary size,
+ * e g from a non-blocking channel.
+ * <p>
+ * Each call to {@link #decode(ByteBuffer)} consumes bytes up to the end of the
+ * current object. The state of an incomplete object is kept between the
+ * calls, so the caller doesn't have to buffer the input. Once tag and length
+ * are known an array of the exact object length is allocated and the value is
+ * copied into it as it arrives. The completed object is parsed from this array
+ * without copying it again.
+ * <p>
+ * Instances are not thread-safe.
+ * 
+ * @see CVCObjectReader
+ */
+public final class CVCObjectDecoder {
+
+    // Enough for the longest tag and length supported by the TLV parser
+    private static final int MAX_HEADER_LENGTH = 10;
+
+    private final int maxObjectLength;
+
+    // Tag and length of the current object while they are incomplete
+    private final byte[] header = new byte[MAX_HEADER_LENGTH];
+    private int headerLength;
+
+    // The current object once its length is known
+    private byte[] object;
+    private int objectPosition;
+
+    /**
+     * Creates a decoder accepting objects up to
+     * {@link CVCObjectReader#DEFAULT_MAX_OBJECT_LENGTH} bytes
+     */
+    public CVCObjectDecoder() {
+	this(CVCObjectReader.DEFAULT_MAX_OBJECT_LENGTH);
+    }
+
+    /**
+     * Creates a decoder accepting objects up to 'maxObjectLength' bytes,
+     * including tag and length
+     * 
+     * @param maxObjectLength
+     */
+    public CVCObjectDecoder(int maxObjectLength) {
+	if (maxObjectLength < 2) {
+	    throw new IllegalArgumentException("maxObjectLength too small: " + maxObjectLength);
+	}
+	this.maxObjectLength = maxObjectLength;
+    }
+
+    /**
+     * Consumes bytes from 'input' until the current object is complete or
+     * 'input' is exhausted. Bytes after the end of the object are not consumed,
+     * so this method is called until it returns null to decode all objects in
+     * 'input'.
+     * <p>
+     * If tag and length can't be decoded or the object is too long, the input
+     * can't be resynchronized and the decoder should not be used any more. If
+     * the complete object can't be parsed it has been consumed, and decoding
+     * continues with the next object.
+     * 
+     * @param input
+     * @return the completed object or null if more bytes are needed
+     * @throws ParseException
+     *             if the object can't be parsed or is too long
+     */
+    public CVCObject decode(ByteBuffer input) throws ParseException, ConstructionException {
+	if (object == null) {
+	    int length;
+	    // Tag and length are consumed byte by byte, they are never longer than a
+	    // few bytes
+	    while ((length = objectLength()) < 0) {
+		if (!input.hasRemaining()) {
+		    return null;
+		}
+		if (headerLength == header.length) {
+		    reset();
+		    throw new ParseException("Invalid tag or length");
+		}
+		header[headerLength++] = input.get();
+	    }
+	    object = new byte[length];
+	    System.arraycopy(header, 0, object, 0, headerLength);
+	    objectPosition = headerLength;
+	    headerLength = 0;
+	}
+
+	int count = Math.min(input.remaining(), object.length - objectPosition);
+	input.get(object, objectPosition, count);
+	objectPosition += count;
+	if (objectPosition < object.length) {
+	    return null;
+	}
+	byte[] complete = object;
+	object = null;
+	return CertificateParser.parseOwnedCVCObject(complete);
+    }
+
+    /**
+     * Returns true if bytes of an incomplete object have been consumed, e g to
+     * detect a connection that was closed within an object
+     * 
+     * @return
+     */
+    public boolean isPending() {
+	return headerLength > 0 || object != null;
+    }
+
+    /**
+     * Discards an incomplete object
+     */
+    public void reset() {
+	headerLength = 0;
+	object = null;
+    }
+
+    // Returns the length of the object including tag and length, or -1 if more
+    // bytes are needed to decode tag and length
+    private int objectLength() throws ParseException {
+	if (headerLength == 0) {
+	    return -1;
+	}
+	ByteBuffer buffer = ByteBuffer.wrap(header, 0, headerLength);
+	try {
+	    Tag.parse(buffer);
+	    int length = Length.parse(buffer).getLength();
+	    if (length > maxObjectLength - buffer.position()) {
+		reset();
+		throw new ParseException("Object too long: " + length);
+	    }
+	    return buffer.position() + length;
+	} catch (BufferUnderflowException e) {
+	    return -1;
+	} catch (IllegalArgumentException e) {
+	    reset();
+	    throw new ParseException(e);
+	} catch (IllegalStateException e) {
+	    reset();
+	    throw new ParseException(e);
+	} catch (UnsupportedOperationException e) {
+	    reset();
+	    throw new ParseException(e);
+	}
+    }
+}
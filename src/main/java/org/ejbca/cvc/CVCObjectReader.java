@@ -0,0 +1,221 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.exception.ParseException;
+import org.ejbca.cvc.internal.tlv.Length;
+import org.ejbca.cvc.internal.tlv.Tag;
+
+/**
+ * Reads concatenated DER-encoded CVC objects (certificates, requests and
+ * authenticated requests) from a stream or a channel.
+ * <p>
+ * The objects are read one at a time: first the tag and length, then the value.
+ * Nothing is read beyond the current object, so the stream may contain other
+ * data after the last object read. Only one object is held in memory, objects
+ * longer than the configured maximum are rejected.
+ * <p>
+ * The reader is also an {@link Iterator}, where the checked exceptions of
+ * {@link #read()} are wrapped in an IllegalStateException. Instances are not
+ * thread-safe. The channel must be in blocking mode.
+ */
+public final class CVCObjectReader implements Iterator<CVCObject>, Closeable {
+
+    /** Default maximum length of an object, including tag and length */
+    public static final int DEFAULT_MAX_OBJECT_LENGTH = 64 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    // Enough for any tag and length
+    private static final int MIN_HEADER_LENGTH = 2;
+
+    private final ReadableByteChannel channel;
+    private final int maxObjectLength;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private CVCObject next;
+
+    /**
+     * Creates a reader of 'in'
+     * 
+     * @param in
+     */
+    public CVCObjectReader(InputStream in) {
+	this(Channels.newChannel(in), DEFAULT_MAX_OBJECT_LENGTH);
+    }
+
+    /**
+     * Creates a reader of 'channel'
+     * 
+     * @param channel
+     */
+    public CVCObjectReader(ReadableByteChannel channel) {
+	this(channel, DEFAULT_MAX_OBJECT_LENGTH);
+    }
+
+    /**
+     * Creates a reader of 'channel' accepting objects up to 'maxObjectLength'
+     * bytes
+     * 
+     * @param channel
+     * @param maxObjectLength
+     */
+    public CVCObjectReader(ReadableByteChannel channel, int maxObjectLength) {
+	if (channel == null) {
+	    throw new IllegalArgumentException("channel is null");
+	}
+	if (maxObjectLength < MIN_HEADER_LENGTH) {
+	    throw new IllegalArgumentException("maxObjectLength too small: " + maxObjectLength);
+	}
+	this.channel = channel;
+	this.maxObjectLength = maxObjectLength;
+    }
+
+    /**
+     * Reads the next object
+     * 
+     * @return the object, or null at the end of the stream
+     * @throws ParseException
+     *             if the object can't be parsed, is too long or the stream ends
+     *             within the object
+     */
+    public CVCObject read() throws IOException, ParseException, ConstructionException {
+	if (next != null) {
+	    CVCObject result = next;
+	    next = null;
+	    return result;
+	}
+
+	buffer.clear();
+	if (!fill(MIN_HEADER_LENGTH)) {
+	    if (buffer.position() == 0) {
+		return null;
+	    }
+	    throw new ParseException("Unexpected end of stream");
+	}
+	int objectLength;
+	while ((objectLength = objectLength()) < 0) {
+	    // Tag or length continues in the next byte
+	    if (!fill(buffer.position() + 1)) {
+		throw new ParseException("Unexpected end of stream");
+	    }
+	}
+	if (!fill(objectLength)) {
+	    throw new ParseException("Unexpected end of stream");
+	}
+	buffer.flip();
+	return CertificateParser.parseCVCObject(buffer);
+    }
+
+    /**
+     * Returns true if there is another object
+     * 
+     * @throws IllegalStateException
+     *             if reading fails
+     */
+    @Override
+    public boolean hasNext() {
+	if (next == null) {
+	    try {
+		next = read();
+	    } catch (IOException e) {
+		throw new IllegalStateException(e);
+	    } catch (ParseException e) {
+		throw new IllegalStateException(e);
+	    } catch (ConstructionException e) {
+		throw new IllegalStateException(e);
+	    }
+	}
+	return next != null;
+    }
+
+    /**
+     * Returns the next object
+     * 
+     * @throws IllegalStateException
+     *             if reading fails
+     */
+    @Override
+    public CVCObject next() {
+	if (!hasNext()) {
+	    throw new NoSuchElementException();
+	}
+	CVCObject result = next;
+	next = null;
+	return result;
+    }
+
+    /**
+     * Not supported
+     */
+    @Override
+    public void remove() {
+	throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the underlying channel
+     */
+    @Override
+    public void close() throws IOException {
+	channel.close();
+    }
+
+    // Returns the length of the object including tag and length, or -1 if more
+    // bytes are needed to decode tag and length
+    private int objectLength() throws ParseException {
+	ByteBuffer header = buffer.duplicate();
+	header.flip();
+	try {
+	    Tag.parse(header);
+	    int length = Length.parse(header).getLength();
+	    if (length > maxObjectLength - header.position()) {
+		throw new ParseException("Object too long: " + length);
+	    }
+	    return header.position() + length;
+	} catch (BufferUnderflowException e) {
+	    return -1;
+	} catch (IllegalArgumentException e) {
+	    throw new ParseException(e);
+	} catch (UnsupportedOperationException e) {
+	    throw new ParseException(e);
+	}
+    }
+
+    // Reads until the buffer holds 'length' bytes, returns false at the end of
+    // the stream
+    private boolean fill(int length) throws IOException {
+	if (length > buffer.capacity()) {
+	    ByteBuffer larger = ByteBuffer.allocate(Math.max(length, Math.min(2 * buffer.capacity(), maxObjectLength)));
+	    buffer.flip();
+	    larger.put(buffer);
+	    buffer = larger;
+	}
+	buffer.limit(length);
+	while (buffer.hasRemaining()) {
+	    if (channel.read(buffer) < 0) {
+		return false;
+	    }
+	}
+	return true;
+    }
+}
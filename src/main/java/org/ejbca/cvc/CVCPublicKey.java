@@ -1,53 +1,362 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-import java.io.IOException;
-import java.security.PublicKey;
-
-/**
- * Represents the sequence Public Key
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: CVCPublicKey.java 20720 2015-02-19 16:56:59Z mikekushner $
- * 
- */
-public abstract class CVCPublicKey extends AbstractSequence implements PublicKey {
-
-    private static final long serialVersionUID = 5330644668163139836L;
-
-    CVCPublicKey() {
-	super(CVCTagEnum.PUBLIC_KEY);
-    }
-
-    // Implements java.security.PublicKey
-    public byte[] getEncoded() {
-	byte[] data = null;
-	try {
-	    data = getDEREncoded();
-	} catch (IOException e) {
-	    e.printStackTrace();
-	}
-	return data;
-    }
-
-    /**
-     * Returns Object Identifier
-     * 
-     * @return
-     */
-    public OIDField getObjectIdentifier() throws NoSuchFieldException {
-	return (OIDField) getSubfield(CVCTagEnum.OID);
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.KeySpec;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+
+/**
+ * Represents the sequence Public Key
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: CVCPublicKey.java 20720 2015-02-19 16:56:59Z mikekushner $
+ * 
+ */
+public abstract class CVCPublicKey extends AbstractSequence implements PublicKey {
+
+    private static final long serialVersionUID = 5330644668163139836L;
+
+    // Keys converted by getNativeKey, at most one per provider name. Replaced as
+    // a whole when a key is added.
+    private transient volatile NativeKey[] nativeKeys;
+
+    // Key parameters for the Bouncy Castle lightweight API
+    private transient volatile AsymmetricKeyParameter keyParameters;
+
+    // SHA-256 fingerprint of the key values
+    private transient volatile byte[] fingerprint;
+
+    CVCPublicKey() {
+	super(CVCTagEnum.PUBLIC_KEY);
+    }
+
+    // Implements java.security.PublicKey
+    public byte[] getEncoded() {
+	byte[] data = null;
+	try {
+	    data = getDEREncoded();
+	} catch (IOException e) {
+	    e.printStackTrace();
+	}
+	return data;
+    }
+
+    /**
+     * Returns Object Identifier
+     * 
+     * @return
+     */
+    public OIDField getObjectIdentifier() throws NoSuchFieldException {
+	return (OIDField) getSubfield(CVCTagEnum.OID);
+    }
+
+    /**
+     * Returns this key converted to a key of the given provider, e g a
+     * BCECPublicKey for "BC". Providers handle their own keys without converting
+     * them again on every initVerify. The conversion is done once per provider
+     * and the result is cached until this key is modified. The name is resolved
+     * to the installed provider, and the result is shared with
+     * {@link #getNativeKey(Provider)} for that instance.
+     * 
+     * @param provider
+     *            name of the provider, or null for the preferred provider of the
+     *            key algorithm
+     * @return
+     * @throws InvalidKeySpecException
+     *             if this key can't be converted, e g an EC key without domain
+     *             parameters
+     */
+    public PublicKey getNativeKey(String provider)
+	    throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
+	if (provider != null) {
+	    Provider installed = Security.getProvider(provider);
+	    if (installed == null) {
+		throw new NoSuchProviderException("no such provider: " + provider);
+	    }
+	    return getNativeKey(installed);
+	}
+	// The first provider of the key algorithm which can convert this key
+	Provider[] providers = Security.getProviders("KeyFactory." + getKeyAlgorithm());
+	if (providers == null) {
+	    throw new NoSuchAlgorithmException(getKeyAlgorithm() + " KeyFactory not available");
+	}
+	InvalidKeySpecException failure = null;
+	for (Provider candidate : providers) {
+	    PublicKey key = findNativeKey(candidate);
+	    if (key == null) {
+		try {
+		    return getNativeKey(candidate);
+		} catch (InvalidKeySpecException e) {
+		    failure = e;
+		    addNativeKey(candidate, this);
+		}
+	    } else if (key != this) {
+		return key;
+	    }
+	}
+	throw failure != null ? failure
+		: new InvalidKeySpecException("No provider can convert the " + getKeyAlgorithm() + " key");
+    }
+
+    /**
+     * Same as {@link #getNativeKey(String)} but with a provider instance
+     * 
+     * @param provider
+     * @return
+     * @throws InvalidKeySpecException
+     *             if this key can't be converted, e g an EC key without domain
+     *             parameters
+     */
+    public PublicKey getNativeKey(Provider provider) throws NoSuchAlgorithmException, InvalidKeySpecException {
+	if (provider == null) {
+	    throw new IllegalArgumentException("provider is null");
+	}
+	PublicKey key = findNativeKey(provider);
+	if (key == null || key == this) {
+	    key = java.security.KeyFactory.getInstance(getKeyAlgorithm(), provider).generatePublic(getKeySpec());
+	    addNativeKey(provider, key);
+	}
+	return key;
+    }
+
+    /**
+     * Returns the key to pass to a Signature of 'provider': the native key if
+     * 'key' is a CVCPublicKey that can be converted, otherwise 'key' itself. A
+     * failed conversion is remembered so it is not tried again.
+     * 
+     * @param key
+     * @param provider
+     * @return
+     */
+    static PublicKey toNativeKey(PublicKey key, Provider provider) {
+	if (!(key instanceof CVCPublicKey)) {
+	    return key;
+	}
+	CVCPublicKey cvcKey = (CVCPublicKey) key;
+	PublicKey nativeKey = cvcKey.findNativeKey(provider);
+	if (nativeKey == null) {
+	    try {
+		nativeKey = cvcKey.getNativeKey(provider);
+	    } catch (GeneralSecurityException e) {
+		// Let the provider decide what to do with the key
+		nativeKey = cvcKey;
+		cvcKey.addNativeKey(provider, nativeKey);
+	    }
+	}
+	return nativeKey;
+    }
+
+    /**
+     * Returns the name of the key algorithm for java.security.KeyFactory
+     * 
+     * @return
+     */
+    abstract String getKeyAlgorithm();
+
+    /**
+     * Returns the key specification used for converting this key
+     * 
+     * @return
+     * @throws InvalidKeySpecException
+     *             if some of the required subfields are missing
+     */
+    abstract KeySpec getKeySpec() throws InvalidKeySpecException;
+
+    /**
+     * Returns the key parameters for verifying with the Bouncy Castle lightweight
+     * API. The parameters are created once and cached until this key is
+     * modified.
+     * 
+     * @return
+     * @throws InvalidKeyException
+     *             if some of the required subfields are missing
+     */
+    AsymmetricKeyParameter getKeyParameters() throws InvalidKeyException {
+	AsymmetricKeyParameter result = keyParameters;
+	if (result == null) {
+	    result = createKeyParameters();
+	    keyParameters = result;
+	}
+	return result;
+    }
+
+    /**
+     * Creates the key parameters returned by {@link #getKeyParameters()}
+     * 
+     * @return
+     * @throws InvalidKeyException
+     *             if some of the required subfields are missing
+     */
+    abstract AsymmetricKeyParameter createKeyParameters() throws InvalidKeyException;
+
+    /**
+     * Returns the fingerprint of 'key', see {@link #getFingerprint()}
+     * 
+     * @param key
+     * @return
+     */
+    static byte[] getFingerprint(PublicKey key) {
+	if (key instanceof CVCPublicKey) {
+	    return ((CVCPublicKey) key).getFingerprint();
+	}
+	return createFingerprint(key);
+    }
+
+    /**
+     * Returns a SHA-256 fingerprint of the key values, i e the public point of
+     * an EC key or modulus and exponent of an RSA key. Domain parameters are not
+     * included, so a key has the same fingerprint as the JCA key it was created
+     * from and the copy with inherited domain parameters. The returned array
+     * must not be modified.
+     * 
+     * @return
+     */
+    byte[] getFingerprint() {
+	byte[] result = fingerprint;
+	if (result == null) {
+	    result = createFingerprint(this);
+	    fingerprint = result;
+	}
+	return result;
+    }
+
+    private static byte[] createFingerprint(PublicKey key) {
+	Digest digest = new SHA256Digest();
+	if (key instanceof ECPublicKey) {
+	    update(digest, ((ECPublicKey) key).getW().getAffineX());
+	    update(digest, ((ECPublicKey) key).getW().getAffineY());
+	} else if (key instanceof RSAPublicKey) {
+	    update(digest, ((RSAPublicKey) key).getModulus());
+	    update(digest, ((RSAPublicKey) key).getPublicExponent());
+	} else {
+	    byte[] encoded = key.getEncoded();
+	    digest.update(encoded, 0, encoded.length);
+	}
+	byte[] result = new byte[digest.getDigestSize()];
+	digest.doFinal(result, 0);
+	return result;
+    }
+
+    // Feeds length and value, so that the values can't be shifted between each
+    // other
+    private static void update(Digest digest, BigInteger value) {
+	byte[] data = value.toByteArray();
+	digest.update((byte) (data.length >> 24));
+	digest.update((byte) (data.length >> 16));
+	digest.update((byte) (data.length >> 8));
+	digest.update((byte) data.length);
+	digest.update(data, 0, data.length);
+    }
+
+    @Override
+    void cacheValues() {
+	try {
+	    getFingerprint();
+	} catch (IllegalArgumentException e) {
+	    // Invalid key values, reported when the fingerprint is used
+	} catch (IllegalStateException e) {
+	    // Same here
+	}
+    }
+
+    /**
+     * Drops values derived from the subfields. Called whenever a subfield is added
+     * or modified. Subclasses caching values must override this method and call
+     * it.
+     */
+    void clearCachedValues() {
+	nativeKeys = null;
+	keyParameters = null;
+	fingerprint = null;
+    }
+
+    @Override
+    void invalidateEncoded() {
+	clearCachedValues();
+	super.invalidateEncoded();
+    }
+
+    // Returns the cached key, 'this' if the conversion failed before
+    private PublicKey findNativeKey(Provider provider) {
+	NativeKey[] current = nativeKeys;
+	if (current == null) {
+	    return null;
+	}
+	for (NativeKey nativeKey : current) {
+	    if (nativeKey.provider == provider) {
+		return nativeKey.key;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Returns the number of cached converted keys
+     * 
+     * @return
+     */
+    int getNativeKeyCount() {
+	NativeKey[] current = nativeKeys;
+	return current == null ? 0 : current.length;
+    }
+
+    // Adds the key, replacing a key for another provider of the same name, so
+    // that at most one key per provider name is kept
+    private synchronized void addNativeKey(Provider provider, PublicKey key) {
+	NativeKey added = new NativeKey(provider, key);
+	NativeKey[] current = nativeKeys;
+	if (current == null) {
+	    current = new NativeKey[0];
+	}
+	int count = 0;
+	NativeKey[] updated = new NativeKey[current.length + 1];
+	for (NativeKey nativeKey : current) {
+	    if (!nativeKey.provider.getName().equals(provider.getName())) {
+		updated[count++] = nativeKey;
+	    }
+	}
+	updated[count++] = added;
+	if (count < updated.length) {
+	    NativeKey[] trimmed = new NativeKey[count];
+	    System.arraycopy(updated, 0, trimmed, 0, count);
+	    updated = trimmed;
+	}
+	nativeKeys = updated;
+    }
+
+    // A converted key and the provider it was converted for
+    private static final class NativeKey {
+	final Provider provider;
+	final PublicKey key;
+
+	NativeKey(Provider provider, PublicKey key) {
+	    this.provider = provider;
+	    this.key = key;
+	}
+    }
+}
@@ -1,75 +1,137 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-/**
- * Definitions of the applications specific tags in CV-certificates.
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: CVCTagEnum.java 18548 2014-03-04 11:46:03Z samuellb $
- *
- */
-public enum CVCTagEnum {
-
-    // Certificate fields
-    CV_CERTIFICATE(0x7F21, true), CERTIFICATE_BODY(0x7F4E, true), PROFILE_IDENTIFIER(0x5F29), PUBLIC_KEY(0x7F49,
-	    true), HOLDER_REFERENCE(0x5F20), HOLDER_AUTH_TEMPLATE(0x7F4C,
-		    true), EFFECTIVE_DATE(0x5F25), EXPIRATION_DATE(0x5F24), SIGNATURE(0x5F37),
-
-    OID(0x06), CA_REFERENCE(0x42), REQ_AUTHENTICATION(0x67, true),
-
-    // Fields for Holder Authorization Template (actually, it's "Arbitrary data"
-    // according to the spec)
-    ROLE_AND_ACCESS_RIGHTS(0x53),
-
-    // Fields for Public Key
-    MODULUS(0x81), EXPONENT(0x82),
-    // Only for EC
-    COEFFICIENT_A(0x82), // Note: this has the same value as EXPONENT...
-    COEFFICIENT_B(0x83), BASE_POINT_G(0x84), BASE_POINT_R_ORDER(0x85), PUBLIC_POINT_Y(0x86), COFACTOR_F(0x87);
-
-    private int value;
-    private boolean isSequence;
-
-    private CVCTagEnum(final int value) {
-	this(value, false);
-    }
-
-    private CVCTagEnum(final int value, final boolean isSequence) {
-	this.value = value;
-	this.isSequence = isSequence;
-    }
-
-    /**
-     * Returns the value of the tag
-     * 
-     * @return
-     */
-    public int getValue() {
-	return value;
-    }
-
-    /**
-     * Returns flag indicating if this field is a Sequence
-     * 
-     * @return
-     */
-    public boolean isSequence() {
-	// According to ITU-T X.690: if bit 6 in the first of two bytes
-	// is 0 then the encoding is 'primitive'.
-	// Note: this doesn't work here because REQ_AUTHENTICATION has a value of 0x67!
-	// return ((value >>> 8) & 0x20) != 0;
-	return isSequence;
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+/**
+ * Definitions of the applications specific tags in CV-certificates.
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: CVCTagEnum.java 18548 2014-03-04 11:46:03Z samuellb $
+ *
+ */
+public enum CVCTagEnum {
+
+    // Certificate fields
+    CV_CERTIFICATE(0x7F21, true), CERTIFICATE_BODY(0x7F4E, true), PROFILE_IDENTIFIER(0x5F29), PUBLIC_KEY(0x7F49,
+	    true), HOLDER_REFERENCE(0x5F20), HOLDER_AUTH_TEMPLATE(0x7F4C,
+		    true), EFFECTIVE_DATE(0x5F25), EXPIRATION_DATE(0x5F24), SIGNATURE(0x5F37),
+
+    OID(0x06), CA_REFERENCE(0x42), REQ_AUTHENTICATION(0x67, true),
+
+    // Fields for Holder Authorization Template (actually, it's "Arbitrary data"
+    // according to the spec)
+    ROLE_AND_ACCESS_RIGHTS(0x53),
+
+    // Fields for Public Key
+    MODULUS(0x81), EXPONENT(0x82),
+    // Only for EC
+    COEFFICIENT_A(0x82), // Note: this has the same value as EXPONENT...
+    COEFFICIENT_B(0x83), BASE_POINT_G(0x84), BASE_POINT_R_ORDER(0x85), PUBLIC_POINT_Y(0x86), COFACTOR_F(0x87);
+
+    // Lookup table for fromValue, indexed by valueIndex(). Tag values
+    // are one byte or two bytes starting with 0x5F or 0x7F.
+    private static final int PAGE_SIZE = 256;
+    private static final CVCTagEnum[] BY_VALUE = new CVCTagEnum[3 * PAGE_SIZE];
+
+    // Number of distinct tag values
+    static final int VALUE_COUNT;
+
+    static {
+	int count = 0;
+	for (CVCTagEnum type : values()) {
+	    int index = valueIndex(type.value);
+	    CVCTagEnum first = BY_VALUE[index];
+	    if (first == null) {
+		BY_VALUE[index] = type;
+		type.valueId = count++;
+	    } else {
+		// EXPONENT and COEFFICIENT_A, the first one is returned by fromValue
+		type.valueId = first.valueId;
+	    }
+	}
+	VALUE_COUNT = count;
+    }
+
+    private int value;
+    private boolean isSequence;
+    private int valueId;
+
+    private CVCTagEnum(final int value) {
+	this(value, false);
+    }
+
+    private CVCTagEnum(final int value, final boolean isSequence) {
+	this.value = value;
+	this.isSequence = isSequence;
+    }
+
+    /**
+     * Returns the value of the tag
+     * 
+     * @return
+     */
+    public int getValue() {
+	return value;
+    }
+
+    /**
+     * Returns a number from 0 to VALUE_COUNT - 1 identifying the value of this
+     * tag. Tags with the same value have the same id.
+     * 
+     * @return
+     */
+    int getValueId() {
+	return valueId;
+    }
+
+    /**
+     * Returns the tag with the given value without searching. Note that EXPONENT
+     * and COEFFICIENT_A have the same value (0x82), EXPONENT is returned for it.
+     * 
+     * @param value
+     * @return the tag or null if the value is unknown
+     */
+    static CVCTagEnum fromValue(int value) {
+	int index = valueIndex(value);
+	return index < 0 ? null : BY_VALUE[index];
+    }
+
+    // Maps a tag value to an index in BY_VALUE, -1 if no tag can have the value
+    private static int valueIndex(int value) {
+	if (value >= 0 && value < PAGE_SIZE) {
+	    return value;
+	}
+	switch (value >>> 8) {
+	case 0x5F:
+	    return PAGE_SIZE + (value & 0xFF);
+	case 0x7F:
+	    return 2 * PAGE_SIZE + (value & 0xFF);
+	default:
+	    return -1;
+	}
+    }
+
+    /**
+     * Returns flag indicating if this field is a Sequence
+     * 
+     * @return
+     */
+    public boolean isSequence() {
+	// According to ITU-T X.690: if bit 6 in the first of two bytes
+	// is 0 then the encoding is 'primitive'.
+	// Note: this doesn't work here because REQ_AUTHENTICATION has a value of 0x67!
+	// return ((value >>> 8) & 0x20) != 0;
+	return isSequence;
+    }
+
+}
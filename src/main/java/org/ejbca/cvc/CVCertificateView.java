@@ -0,0 +1,274 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.exception.ParseException;
+import org.ejbca.cvc.internal.tlv.Length;
+import org.ejbca.cvc.internal.tlv.Tag;
+
+/**
+ * Read-only view of a DER-encoded CVCertificate.
+ * <p>
+ * In contrast to {@link CertificateParser#parseCertificate(byte[])} no object
+ * tree is built. The first call to one of the accessors records the offsets of
+ * the certificate body, the signature and the fields in the body, and all
+ * accessors return read-only slices of the wrapped buffer. No field data is
+ * copied.
+ * <p>
+ * The wrapped buffer (heap or direct) must not be modified while the view is
+ * in use.
+ */
+public final class CVCertificateView {
+
+    private static final int FIELD_COUNT = CVCTagEnum.values().length;
+
+    // Every recorded field occupies three entries in the index:
+    // start of the tag, start of the value and the length of the value
+    private static final int ENTRY_SIZE = 3;
+    private static final int TLV_START = 0;
+    private static final int VALUE_START = 1;
+    private static final int VALUE_LENGTH = 2;
+
+    private static final int NOT_PRESENT = -1;
+
+    // The fields allowed in a certificate and in its body. The two have no tag
+    // in common, so every index entry is recorded at one level only.
+    private static final SequenceSchema CERTIFICATE_SCHEMA = new CVCertificate().getSchema();
+    private static final SequenceSchema BODY_SCHEMA = new CVCertificateBody().getSchema();
+
+    private final ByteBuffer data;
+    private volatile int[] index;
+
+    /**
+     * Creates a view of the certificate starting at the current position of
+     * 'data'. The position of 'data' is not changed.
+     *
+     * @param data
+     */
+    public CVCertificateView(ByteBuffer data) {
+	this.data = data.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates a view of a DER-encoded certificate
+     *
+     * @param data
+     */
+    public CVCertificateView(byte[] data) {
+	this(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Returns the complete certificate, including tag and length
+     *
+     * @return
+     */
+    public ByteBuffer getEncoded() throws ParseException {
+	return tlv(CVCTagEnum.CV_CERTIFICATE);
+    }
+
+    /**
+     * Returns the data To Be Signed, i e the certificate body including tag and
+     * length
+     *
+     * @return
+     */
+    public ByteBuffer getTBS() throws ParseException {
+	return tlv(CVCTagEnum.CERTIFICATE_BODY);
+    }
+
+    /**
+     * Returns the signature
+     *
+     * @return
+     */
+    public ByteBuffer getSignature() throws ParseException {
+	return getField(CVCTagEnum.SIGNATURE);
+    }
+
+    /**
+     * Returns 'Certificate Holder Reference'
+     *
+     * @return
+     */
+    public ByteBuffer getHolderReference() throws ParseException {
+	return getField(CVCTagEnum.HOLDER_REFERENCE);
+    }
+
+    /**
+     * Returns 'Certificate Authority Reference'. Since this field is optional in a
+     * CVCRequest this method may return null
+     *
+     * @return
+     */
+    public ByteBuffer getAuthorityReference() throws ParseException {
+	return getField(CVCTagEnum.CA_REFERENCE);
+    }
+
+    /**
+     * Returns 'Effective Date' as six bytes with one digit each, or null for a
+     * CVCRequest
+     *
+     * @return
+     */
+    public ByteBuffer getEffectiveDate() throws ParseException {
+	return getField(CVCTagEnum.EFFECTIVE_DATE);
+    }
+
+    /**
+     * Returns 'Expiration Date' as six bytes with one digit each, or null for a
+     * CVCRequest
+     *
+     * @return
+     */
+    public ByteBuffer getExpirationDate() throws ParseException {
+	return getField(CVCTagEnum.EXPIRATION_DATE);
+    }
+
+    /**
+     * Returns the value (without tag and length) of a field in the certificate
+     * or the certificate body.
+     *
+     * @param tag
+     * @return the value or null if the field is not present
+     */
+    public ByteBuffer getField(CVCTagEnum tag) throws ParseException {
+	int[] idx = index();
+	int entry = tag.ordinal() * ENTRY_SIZE;
+	if (idx[entry + TLV_START] == NOT_PRESENT) {
+	    return null;
+	}
+	return slice(idx[entry + VALUE_START], idx[entry + VALUE_LENGTH]);
+    }
+
+    /**
+     * Parses the viewed data into a CVCertificate
+     *
+     * @return
+     */
+    public CVCertificate toCertificate() throws ParseException, ConstructionException {
+	return CertificateParser.parseCertificate(getEncoded());
+    }
+
+    // Returns a field including tag and length
+    private ByteBuffer tlv(CVCTagEnum tag) throws ParseException {
+	int[] idx = index();
+	int entry = tag.ordinal() * ENTRY_SIZE;
+	int start = idx[entry + TLV_START];
+	return slice(start, idx[entry + VALUE_START] + idx[entry + VALUE_LENGTH] - start);
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+	ByteBuffer buffer = data.duplicate();
+	buffer.position(offset);
+	buffer.limit(offset + length);
+	return buffer.slice();
+    }
+
+    private int[] index() throws ParseException {
+	int[] result = index;
+	if (result == null) {
+	    result = buildIndex();
+	    index = result;
+	}
+	return result;
+    }
+
+    // Records the offsets of the certificate, its body and the fields of the body
+    private int[] buildIndex() throws ParseException {
+	int[] result = new int[FIELD_COUNT * ENTRY_SIZE];
+	Arrays.fill(result, NOT_PRESENT);
+
+	try {
+	    ByteBuffer buffer = data.duplicate();
+	    CVCTagEnum tag = readField(buffer, data.limit(), result, null, null);
+	    if (tag != CVCTagEnum.CV_CERTIFICATE) {
+		throw new ParseException("Expected first tag " + CVCTagEnum.CV_CERTIFICATE + " but found " + tag);
+	    }
+	    int certificateEnd = valueEnd(result, tag);
+	    while (buffer.position() < certificateEnd) {
+		tag = readField(buffer, certificateEnd, result, CVCTagEnum.CV_CERTIFICATE, CERTIFICATE_SCHEMA);
+		if (tag == CVCTagEnum.CERTIFICATE_BODY) {
+		    int bodyEnd = valueEnd(result, tag);
+		    while (buffer.position() < bodyEnd) {
+			// Only the offsets of the body fields are needed, skip their values
+			buffer.position(valueEnd(result,
+				readField(buffer, bodyEnd, result, CVCTagEnum.CERTIFICATE_BODY, BODY_SCHEMA)));
+		    }
+		} else {
+		    // The signature of the certificate, the body may not contain one
+		    buffer.position(valueEnd(result, tag));
+		}
+	    }
+	} catch (BufferUnderflowException e) {
+	    throw new ParseException(e);
+	} catch (IllegalArgumentException e) {
+	    throw new ParseException(e);
+	} catch (IllegalStateException e) {
+	    throw new ParseException(e);
+	} catch (UnsupportedOperationException e) {
+	    throw new ParseException(e);
+	}
+
+	if (result[CVCTagEnum.CERTIFICATE_BODY.ordinal() * ENTRY_SIZE] == NOT_PRESENT) {
+	    throw new ParseException("Could not find " + CVCTagEnum.CERTIFICATE_BODY);
+	}
+	if (result[CVCTagEnum.SIGNATURE.ordinal() * ENTRY_SIZE] == NOT_PRESENT) {
+	    throw new ParseException("Could not find " + CVCTagEnum.SIGNATURE);
+	}
+	return result;
+    }
+
+    /*
+     * Reads tag and length at the current position and records the field in
+     * 'index'. The tag must be allowed by 'schema' of the enclosing field
+     * 'parent', or any tag if 'schema' is null. The buffer is left positioned at
+     * the start of the value.
+     */
+    private static CVCTagEnum readField(ByteBuffer buffer, int limit, int[] index, CVCTagEnum parent,
+	    SequenceSchema schema) throws ParseException {
+	int start = buffer.position();
+	int tagValue = CertificateParser.tagValue(Tag.parse(buffer));
+	CVCTagEnum tag = CertificateParser.findTagFromValue(tagValue);
+	if (schema != null) {
+	    CVCTagEnum allowed = schema.resolve(tagValue);
+	    if (allowed == null) {
+		throw new ParseException("Field " + tag + " not allowed in " + parent);
+	    }
+	    tag = allowed;
+	}
+	int length = Length.parse(buffer).getLength();
+	if (length > limit - buffer.position()) {
+	    throw new ParseException("Length of " + tag + " exceeds the enclosing data: " + length);
+	}
+
+	int entry = tag.ordinal() * ENTRY_SIZE;
+	if (index[entry + TLV_START] != NOT_PRESENT) {
+	    throw new ParseException("Field " + tag + " occurs more than once");
+	}
+	index[entry + TLV_START] = start;
+	index[entry + VALUE_START] = buffer.position();
+	index[entry + VALUE_LENGTH] = length;
+	return tag;
+    }
+
+    private static int valueEnd(int[] index, CVCTagEnum tag) {
+	int entry = tag.ordinal() * ENTRY_SIZE;
+	return index[entry + VALUE_START] + index[entry + VALUE_LENGTH];
+    }
+}
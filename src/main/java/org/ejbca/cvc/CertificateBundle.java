@@ -0,0 +1,228 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Memory mapped bundle of certificates with an index by 'Certificate Holder
+ * Reference'. Bundles are created by {@link CertificateBundleWriter}.
+ * <p>
+ * The file format (all numbers big endian):
+ * <ul>
+ * <li>header: magic "CVCB", version (int), number of certificates (int), offset
+ * of the index (long)</li>
+ * <li>the DER-encoded certificates</li>
+ * <li>index: one entry per certificate, sorted by holder reference. An entry
+ * is the length of the holder reference (byte), the holder reference padded
+ * with zeros to 16 bytes, the offset of the certificate (long) and its length
+ * (int).</li>
+ * </ul>
+ * A lookup does a binary search on the fixed size index entries, no other
+ * certificate is parsed. Instances are thread-safe.
+ */
+public final class CertificateBundle implements Closeable {
+
+    static final byte[] MAGIC = { 'C', 'V', 'C', 'B' };
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = MAGIC.length + 4 + 4 + 8;
+    static final int MAX_REFERENCE_LENGTH = 16;
+    static final int ENTRY_LENGTH = 1 + MAX_REFERENCE_LENGTH + 8 + 4;
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final RandomAccessFile file;
+    private final ByteBuffer data;
+    private final ByteBuffer index;
+    private final int count;
+
+    /**
+     * Maps a bundle
+     * 
+     * @param file
+     * @throws ParseException
+     *             if the file is not a valid bundle
+     */
+    public CertificateBundle(File file) throws IOException, ParseException {
+	this.file = new RandomAccessFile(file, "r");
+	try {
+	    FileChannel channel = this.file.getChannel();
+	    long size = channel.size();
+	    if (size < HEADER_LENGTH || size > Integer.MAX_VALUE) {
+		throw new ParseException("Invalid bundle size: " + size);
+	    }
+	    ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer();
+	    for (int i = 0; i < MAGIC.length; i++) {
+		if (mapped.get(i) != MAGIC[i]) {
+		    throw new ParseException("Not a certificate bundle");
+		}
+	    }
+	    int version = mapped.getInt(MAGIC.length);
+	    if (version != VERSION) {
+		throw new ParseException("Unsupported bundle version: " + version);
+	    }
+	    this.count = mapped.getInt(MAGIC.length + 4);
+	    long indexOffset = mapped.getLong(MAGIC.length + 8);
+	    if (count < 0 || indexOffset < HEADER_LENGTH || indexOffset + (long) count * ENTRY_LENGTH != size) {
+		throw new ParseException("Corrupt bundle header");
+	    }
+	    this.data = slice(mapped, 0, (int) indexOffset);
+	    this.index = slice(mapped, (int) indexOffset, count * ENTRY_LENGTH);
+	} catch (IOException e) {
+	    this.file.close();
+	    throw e;
+	} catch (ParseException e) {
+	    this.file.close();
+	    throw e;
+	}
+    }
+
+    /**
+     * Returns the number of certificates
+     * 
+     * @return
+     */
+    public int size() {
+	return count;
+    }
+
+    /**
+     * Returns the DER-encoded certificate with the given holder reference as a
+     * read-only buffer of the mapped file
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return the certificate or null if not found
+     */
+    public ByteBuffer getEncoded(String holderReference) {
+	return getEncoded(holderReference.getBytes(ASCII));
+    }
+
+    /**
+     * Returns the DER-encoded certificate with the given holder reference
+     * 
+     * @param holderReference
+     * @return the certificate or null if not found
+     * @see #getEncoded(String)
+     */
+    public ByteBuffer getEncoded(HolderReferenceField holderReference) {
+	return getEncoded(holderReference.getEncoded());
+    }
+
+    /**
+     * Returns a view of the certificate with the given holder reference
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return the view or null if not found
+     */
+    public CVCertificateView getView(String holderReference) {
+	ByteBuffer encoded = getEncoded(holderReference);
+	return encoded == null ? null : new CVCertificateView(encoded);
+    }
+
+    /**
+     * Parses the certificate with the given holder reference
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return the certificate or null if not found
+     */
+    public CVCertificate getCertificate(String holderReference) throws ParseException, ConstructionException {
+	ByteBuffer encoded = getEncoded(holderReference);
+	return encoded == null ? null : CertificateParser.parseCertificate(encoded);
+    }
+
+    /**
+     * Closes the file
+     */
+    @Override
+    public void close() throws IOException {
+	file.close();
+    }
+
+    // Binary search in the index
+    private ByteBuffer getEncoded(byte[] reference) {
+	int low = 0;
+	int high = count - 1;
+	while (low <= high) {
+	    int middle = (low + high) >>> 1;
+	    int entry = middle * ENTRY_LENGTH;
+	    int cmp = compare(index, entry, reference);
+	    if (cmp < 0) {
+		low = middle + 1;
+	    } else if (cmp > 0) {
+		high = middle - 1;
+	    } else {
+		int offsetPosition = entry + 1 + MAX_REFERENCE_LENGTH;
+		long offset = index.getLong(offsetPosition);
+		int length = index.getInt(offsetPosition + 8);
+		if (offset < HEADER_LENGTH || length < 0 || offset + length > data.limit()) {
+		    throw new IllegalStateException("Corrupt index entry " + middle);
+		}
+		return slice(data, (int) offset, length);
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Compares the holder reference of the index entry at 'entry' with
+     * 'reference', the same way as {@link #compare(byte[], byte[])}
+     */
+    private static int compare(ByteBuffer index, int entry, byte[] reference) {
+	int length = index.get(entry) & 0xff;
+	int common = Math.min(length, reference.length);
+	for (int i = 0; i < common; i++) {
+	    int cmp = (index.get(entry + 1 + i) & 0xff) - (reference[i] & 0xff);
+	    if (cmp != 0) {
+		return cmp;
+	    }
+	}
+	return length - reference.length;
+    }
+
+    /**
+     * Order of the index: unsigned lexicographic order of the references
+     * 
+     * @param reference1
+     * @param reference2
+     * @return
+     */
+    static int compare(byte[] reference1, byte[] reference2) {
+	int common = Math.min(reference1.length, reference2.length);
+	for (int i = 0; i < common; i++) {
+	    int cmp = (reference1[i] & 0xff) - (reference2[i] & 0xff);
+	    if (cmp != 0) {
+		return cmp;
+	    }
+	}
+	return reference1.length - reference2.length;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+	ByteBuffer result = buffer.duplicate();
+	result.position(offset);
+	result.limit(offset + length);
+	return result.slice();
+    }
+}
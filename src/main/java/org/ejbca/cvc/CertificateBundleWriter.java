@@ -0,0 +1,150 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes a bundle of certificates in the format read by
+ * {@link CertificateBundle}.
+ * <p>
+ * The certificates are written to the file when added, only their holder
+ * references and positions are kept in memory. The index and the header are
+ * written by {@link #close()}, the bundle is not valid before. Instances are
+ * not thread-safe.
+ */
+public final class CertificateBundleWriter implements Closeable {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private final Set<String> holderReferences = new HashSet<String>();
+    private long position = CertificateBundle.HEADER_LENGTH;
+    private boolean closed;
+
+    /**
+     * Creates a bundle, an existing file is overwritten
+     * 
+     * @param file
+     */
+    public CertificateBundleWriter(File file) throws IOException {
+	this.file = new RandomAccessFile(file, "rw");
+	this.file.setLength(0);
+	this.channel = this.file.getChannel();
+    }
+
+    /**
+     * Adds a certificate
+     * 
+     * @param certificate
+     * @throws IllegalArgumentException
+     *             if a certificate with the same holder reference was added
+     *             before
+     * @throws IOException
+     *             if the bundle would exceed 2GB
+     */
+    public void add(CVCertificate certificate) throws IOException, NoSuchFieldException {
+	if (closed) {
+	    throw new IllegalStateException("Bundle is closed");
+	}
+	HolderReferenceField holderReference = certificate.getCertificateBody().getHolderReference();
+	byte[] reference = holderReference.getEncoded();
+	if (reference.length > CertificateBundle.MAX_REFERENCE_LENGTH) {
+	    throw new IllegalArgumentException("Holder reference too long: " + holderReference.getConcatenated());
+	}
+	if (!holderReferences.add(holderReference.getConcatenated())) {
+	    throw new IllegalArgumentException("Duplicate holder reference: " + holderReference.getConcatenated());
+	}
+
+	ByteBuffer encoded = certificate.getDEREncodedBuffer();
+	int length = encoded.remaining();
+	if (position + length + (long) (entries.size() + 1) * CertificateBundle.ENTRY_LENGTH > Integer.MAX_VALUE) {
+	    holderReferences.remove(holderReference.getConcatenated());
+	    throw new IOException("Bundle exceeds maximum size");
+	}
+	write(encoded, position);
+	entries.add(new Entry(reference, position, length));
+	position += length;
+    }
+
+    /**
+     * Writes index and header and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+	if (closed) {
+	    return;
+	}
+	closed = true;
+	try {
+	    Collections.sort(entries, new Comparator<Entry>() {
+		@Override
+		public int compare(Entry entry1, Entry entry2) {
+		    return CertificateBundle.compare(entry1.reference, entry2.reference);
+		}
+	    });
+	    ByteBuffer index = ByteBuffer.allocate(entries.size() * CertificateBundle.ENTRY_LENGTH);
+	    for (Entry entry : entries) {
+		index.put((byte) entry.reference.length);
+		index.put(entry.reference);
+		index.position(index.position() + CertificateBundle.MAX_REFERENCE_LENGTH - entry.reference.length);
+		index.putLong(entry.offset);
+		index.putInt(entry.length);
+	    }
+	    index.flip();
+	    write(index, position);
+
+	    ByteBuffer header = ByteBuffer.allocate(CertificateBundle.HEADER_LENGTH);
+	    header.put(CertificateBundle.MAGIC);
+	    header.putInt(CertificateBundle.VERSION);
+	    header.putInt(entries.size());
+	    header.putLong(position);
+	    header.flip();
+	    write(header, 0);
+	} finally {
+	    file.close();
+	}
+    }
+
+    private void write(ByteBuffer buffer, long offset) throws IOException {
+	while (buffer.hasRemaining()) {
+	    offset += channel.write(buffer, offset);
+	}
+    }
+
+    /**
+     * Index entry of a certificate
+     */
+    private static final class Entry {
+	final byte[] reference;
+	final long offset;
+	final int length;
+
+	Entry(byte[] reference, long offset, int length) {
+	    this.reference = reference;
+	    this.offset = offset;
+	    this.length = length;
+	}
+    }
+}
@@ -1,153 +1,262 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
-
-import org.ejbca.cvc.exception.ConstructionException;
-import org.ejbca.cvc.exception.ParseException;
-
-/**
- * Class responsible for decoding a DER-encoded CVC object, like a CVCertificate
- * or any other instance of CVCObject.
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: CertificateParser.java 9077 2010-05-20 10:57:01Z anatom $
- *
- */
-public final class CertificateParser {
-
-    // Only static methods...
-    private CertificateParser() {
-    }
-
-    /**
-     * Decodes a DER-encoded byte array containing any CVCObject
-     * 
-     * @param data
-     * @return
-     */
-    public static CVCObject parseCVCObject(byte[] data) throws ParseException, ConstructionException {
-	return decode(data, null);
-    }
-
-    /**
-     * Decodes a DER-encoded byte array containing a CVCertificate
-     * 
-     * @param data
-     * @return
-     */
-    public static CVCertificate parseCertificate(byte[] data) throws ParseException, ConstructionException {
-	return (CVCertificate) decode(data, CVCTagEnum.CV_CERTIFICATE);
-    }
-
-    // Creates InputStreams and starts the decoding
-    private static CVCObject decode(byte[] data, CVCTagEnum expectedTag) throws ParseException, ConstructionException {
-	ByteArrayInputStream bin = null;
-	try {
-	    try {
-		bin = new ByteArrayInputStream(data);
-		DataInputStream din = new DataInputStream(bin);
-		return decode(din, expectedTag);
-	    } finally {
-		if (bin != null) {
-		    bin.close();
-		}
-	    }
-	} catch (IOException e) {
-	    throw new ParseException(e);
-	}
-    }
-
-    // Performs the actual decoding
-    private static CVCObject decode(DataInputStream din, CVCTagEnum expectedTag)
-	    throws IOException, ConstructionException, ParseException {
-	// First chunk to decode is the tag
-	int tagValue = decodeTag(din);
-	CVCTagEnum tag = findTagFromValue(tagValue);
-
-	// Validate the tag if a specific one was expected here
-	if (expectedTag != null && tag != expectedTag) {
-	    throw new ParseException("Expected first tag " + expectedTag + " but found " + tag);
-	}
-
-	// The second chunk to decode is the field length
-	int length = CVCObject.decodeLength(din);
-
-	if (tag.isSequence()) {
-	    // Save the position where data for this sequence ends
-	    int sequenceEnd = din.available() - length;
-
-	    // Create correct instance of AbstractSequence
-	    AbstractSequence sequence = SequenceFactory.createSequence(tag);
-
-	    // Add this sequence's subfields through recursion
-	    while (din.available() > sequenceEnd) {
-		sequence.addSubfield(decode(din, null));
-	    }
-	    // If we got a GenericPublicKeyField we must map this
-	    // into an instance of CVCPublicKey before continuing
-	    if (sequence instanceof GenericPublicKeyField) {
-		sequence = KeyFactory.createInstance((GenericPublicKeyField) sequence);
-	    }
-	    return sequence;
-	} else {
-	    // OK, it's a data field so just parse it
-	    byte[] data = new byte[length];
-	    din.read(data, 0, length);
-	    return FieldFactory.decodeField(tag, data);
-	}
-    }
-
-    /*
-     * Maps a tag value to a specific CVCTagEnum. Note that there exists two tags
-     * with the same value (0x82)! In this case the first of these (EXPONENT) will
-     * be returned.
-     */
-    private static CVCTagEnum findTagFromValue(int tagvalue) throws ParseException {
-	CVCTagEnum wantedType = null;
-	for (CVCTagEnum type : CVCTagEnum.values()) {
-	    if (type.getValue() == tagvalue) {
-		wantedType = type;
-		break;
-	    }
-	}
-	if (wantedType != null) {
-	    return wantedType;
-	} else {
-	    throw new ParseException("Unknown CVC tag value " + Integer.toHexString(tagvalue));
-	}
-    }
-
-    /**
-     * Reads a tag value from the input stream. Encoded according to ITU-T X.690
-     * 
-     * @param din
-     * @return
-     */
-    private static int decodeTag(DataInputStream din) throws IOException {
-	int tagValue = 0;
-	int b1 = din.readUnsignedByte();
-	if ((b1 & 0x1F) == 0x1F) {
-	    // There is another byte to read
-	    byte b2 = din.readByte();
-	    tagValue = (b1 << 8) + b2;
-	} else {
-	    tagValue = b1;
-	}
-	return tagValue;
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.exception.ParseException;
+import org.ejbca.cvc.internal.tlv.Length;
+import org.ejbca.cvc.internal.tlv.Tag;
+
+/**
+ * Class responsible for decoding a DER-encoded CVC object, like a CVCertificate
+ * or any other instance of CVCObject.
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: CertificateParser.java 9077 2010-05-20 10:57:01Z anatom $
+ *
+ */
+public final class CertificateParser {
+
+    // Only static methods...
+    private CertificateParser() {
+    }
+
+    /**
+     * Decodes a DER-encoded byte array containing any CVCObject
+     * 
+     * @param data
+     * @return
+     */
+    public static CVCObject parseCVCObject(byte[] data) throws ParseException, ConstructionException {
+	return decode(ByteBuffer.wrap(data), null);
+    }
+
+    /**
+     * Decodes any CVCObject starting at the current position of 'data'. The
+     * position is advanced past the decoded object.
+     * 
+     * @param data
+     * @return
+     */
+    public static CVCObject parseCVCObject(ByteBuffer data) throws ParseException, ConstructionException {
+	return decode(data, null);
+    }
+
+    /**
+     * Decodes a DER-encoded byte array containing a CVCertificate
+     * 
+     * @param data
+     * @return
+     */
+    public static CVCertificate parseCertificate(byte[] data) throws ParseException, ConstructionException {
+	return parseCertificate(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Decodes a CVCertificate from 'len' bytes of 'data' starting at 'off'
+     * 
+     * @param data
+     * @param off
+     * @param len
+     * @return
+     */
+    public static CVCertificate parseCertificate(byte[] data, int off, int len)
+	    throws ParseException, ConstructionException {
+	return parseCertificate(ByteBuffer.wrap(data, off, len));
+    }
+
+    /**
+     * Decodes a CVCertificate starting at the current position of 'data'. The
+     * position is advanced past the certificate.
+     * 
+     * @param data
+     * @return
+     */
+    public static CVCertificate parseCertificate(ByteBuffer data) throws ParseException, ConstructionException {
+	return (CVCertificate) decode(data, CVCTagEnum.CV_CERTIFICATE);
+    }
+
+    /**
+     * Decodes an array containing exactly one CVCObject without copying it. The
+     * parsed sequences keep their DER-encoding as ranges of 'data', so the array
+     * must not be modified afterwards.
+     * 
+     * @param data
+     * @return
+     */
+    static CVCObject parseOwnedCVCObject(byte[] data) throws ParseException, ConstructionException {
+	return parseOwnedCVCObject(data, null);
+    }
+
+    /**
+     * Same as {@link #parseOwnedCVCObject(byte[])} but checks the tag of the
+     * object
+     * 
+     * @param data
+     * @param expectedTag
+     *            the expected tag, or null for any object
+     * @return
+     */
+    static CVCObject parseOwnedCVCObject(byte[] data, CVCTagEnum expectedTag)
+	    throws ParseException, ConstructionException {
+	ByteBuffer buffer = ByteBuffer.wrap(data);
+	CVCObject result = decode(buffer, expectedTag, false);
+	if (buffer.hasRemaining()) {
+	    throw new ParseException("Unexpected data after the object: " + buffer.remaining() + " bytes");
+	}
+	return result;
+    }
+
+    private static CVCObject decode(ByteBuffer data, CVCTagEnum expectedTag)
+	    throws ParseException, ConstructionException {
+	return decode(data, expectedTag, true);
+    }
+
+    // Maps errors from the TLV decoding to ParseException
+    private static CVCObject decode(ByteBuffer data, CVCTagEnum expectedTag, boolean copy)
+	    throws ParseException, ConstructionException {
+	try {
+	    return decodeObject(copy ? copyObject(data) : data, expectedTag, null);
+	} catch (IOException e) {
+	    throw new ParseException(e);
+	} catch (BufferUnderflowException e) {
+	    throw new ParseException(e);
+	} catch (IllegalArgumentException e) {
+	    throw new ParseException(e);
+	} catch (IllegalStateException e) {
+	    throw new ParseException(e);
+	} catch (UnsupportedOperationException e) {
+	    throw new ParseException(e);
+	}
+    }
+
+    /*
+     * Copies the complete object at the current position of 'data' into a new
+     * array and advances the position past it. The parsed sequences keep their
+     * DER-encoding as ranges of this copy, so the input is copied only once and
+     * the caller may reuse it afterwards.
+     */
+    private static ByteBuffer copyObject(ByteBuffer data) throws ParseException {
+	ByteBuffer header = data.duplicate();
+	Tag.parse(header);
+	int length = Length.parse(header).getLength();
+	if (length > header.remaining()) {
+	    throw new ParseException("Length of object exceeds the available data: " + length);
+	}
+	byte[] copy = new byte[header.position() - data.position() + length];
+	data.get(copy);
+	return ByteBuffer.wrap(copy);
+    }
+
+    /*
+     * Performs the actual decoding. 'data' must be backed by an array, see
+     * copyObject. The tag is resolved by the schema of the enclosing sequence
+     * if there is one.
+     */
+    private static CVCObject decodeObject(ByteBuffer data, CVCTagEnum expectedTag, SequenceSchema context)
+	    throws IOException, ConstructionException, ParseException {
+	int start = data.position();
+
+	// First chunk to decode is the tag
+	int tagValue = tagValue(Tag.parse(data));
+	CVCTagEnum tag = context != null ? context.resolve(tagValue) : null;
+	if (tag == null) {
+	    // Not allowed in the enclosing sequence, which is reported when it's added
+	    tag = findTagFromValue(tagValue);
+	}
+
+	// Validate the tag if a specific one was expected here
+	if (expectedTag != null && tag != expectedTag) {
+	    throw new ParseException("Expected first tag " + expectedTag + " but found " + tag);
+	}
+
+	// The second chunk to decode is the field length
+	int length = Length.parse(data).getLength();
+	if (length > data.remaining()) {
+	    throw new ParseException("Length of " + tag + " exceeds the available data: " + length);
+	}
+
+	if (tag.isSequence()) {
+	    // The type of a public key is known from its OID, so it's created when the
+	    // OID has been decoded
+	    AbstractSequence sequence = tag == CVCTagEnum.PUBLIC_KEY ? null : SequenceFactory.createSequence(tag);
+
+	    // Add this sequence's subfields through recursion. The limit is moved to
+	    // the end of this sequence so that subfields can't extend past it.
+	    int limit = data.limit();
+	    data.limit(data.position() + length);
+	    try {
+		while (data.hasRemaining()) {
+		    if (sequence == null) {
+			OIDField oid = (OIDField) decodeObject(data, CVCTagEnum.OID, null);
+			sequence = KeyFactory.createInstance(oid);
+			sequence.addSubfield(oid);
+		    } else {
+			sequence.addSubfield(decodeObject(data, null, sequence.getSchema()));
+		    }
+		}
+	    } finally {
+		data.limit(limit);
+	    }
+	    if (sequence == null) {
+		throw new ParseException("Could not find " + CVCTagEnum.OID + " in " + tag);
+	    }
+	    // Keep the exact bytes of the sequence, they are reused when encoding
+	    sequence.setEncoded(data.array(), data.arrayOffset() + start, data.position() - start);
+	    return sequence;
+	} else {
+	    // OK, it's a data field so just parse it
+	    byte[] value = new byte[length];
+	    data.get(value);
+	    return FieldFactory.decodeField(tag, value);
+	}
+    }
+
+    /*
+     * Maps a tag value to a specific CVCTagEnum. Note that there exists two tags
+     * with the same value (0x82)! In this case the first of these (EXPONENT) will
+     * be returned.
+     */
+    static CVCTagEnum findTagFromValue(int tagvalue) throws ParseException {
+	CVCTagEnum wantedType = CVCTagEnum.fromValue(tagvalue);
+	if (wantedType != null) {
+	    return wantedType;
+	} else {
+	    throw new ParseException("Unknown CVC tag value " + Integer.toHexString(tagvalue));
+	}
+    }
+
+    /**
+     * Converts a parsed {@link Tag} back to the tag value used by CVCTagEnum, i e
+     * the encoded tag bytes as an int (0x7F21 for CV_CERTIFICATE).
+     * 
+     * @param tag
+     * @return
+     */
+    static int tagValue(Tag tag) {
+	int first = tag.getTagClass().getValue() & 0xFF;
+	if (tag.isConstructed()) {
+	    first |= Tag.CONSTRUCTED_MASK;
+	}
+	if (tag.getTagNumber() < Tag.TAG_NO_MASK) {
+	    return first | tag.getTagNumber();
+	} else {
+	    return ((first | Tag.TAG_NO_MASK) << 8) + tag.getTagNumber();
+	}
+    }
+
+}
@@ -0,0 +1,375 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.SignatureException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateNotYetValidException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ejbca.cvc.exception.ConstructionException;
+
+/**
+ * Validates certificate chains CVCA -> DV -> IS.
+ * <p>
+ * The issuer of a certificate is the certificate whose 'Certificate Holder
+ * Reference' equals the 'Certificate Authority Reference' of the certificate.
+ * Chains end at one of the trusted CVCA certificates given when creating the
+ * validator, and may contain CVCA link certificates. For every certificate in
+ * the chain the validator checks
+ * <ul>
+ * <li>that it is valid at the validation date,</li>
+ * <li>that the role of the holder may be certified by the role of the issuer
+ * (CVCA certifies CVCA and DV, DV certifies terminals) and</li>
+ * <li>the signature, using the issuer key with the domain parameters inherited
+ * from the CVCA.</li>
+ * </ul>
+ * Validated DV and link certificates are cached, so a chain whose issuer was
+ * validated before only needs the signature of the leaf to be verified.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class ChainValidator {
+
+    /** Default number of cached intermediate certificates */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    // Limits the number of CVCA link certificates in a chain
+    private static final int MAX_CHAIN_LENGTH = 16;
+
+    private final Map<ReferenceValue, Issuer> trustAnchors = new HashMap<ReferenceValue, Issuer>();
+    private final Map<ReferenceValue, Issuer> validated;
+    private final String provider;
+    private final boolean lightweight;
+    private final HotKeyRegistry hotKeys;
+
+    /**
+     * Creates a validator with the default cache size
+     * 
+     * @param trustAnchors
+     *            trusted CVCA certificates, with domain parameters
+     * @param provider
+     *            security provider for verifying signatures, or null for the
+     *            preferred provider
+     * @throws CertificateException
+     *             if a trust anchor is not a CVCA certificate with domain
+     *             parameters
+     */
+    public ChainValidator(Collection<? extends CVCertificate> trustAnchors, String provider)
+	    throws CertificateException {
+	this(trustAnchors, provider, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a validator
+     * 
+     * @param trustAnchors
+     *            trusted CVCA certificates, with domain parameters
+     * @param provider
+     *            security provider for verifying signatures, or null for the
+     *            preferred provider
+     * @param cacheSize
+     *            maximum number of cached intermediate certificates, 0 disables
+     *            the cache
+     * @throws CertificateException
+     *             if a trust anchor is not a CVCA certificate with domain
+     *             parameters
+     */
+    public ChainValidator(Collection<? extends CVCertificate> trustAnchors, String provider, int cacheSize)
+	    throws CertificateException {
+	this(trustAnchors, provider, false, null, cacheSize);
+    }
+
+    /**
+     * Creates a validator verifying signatures with the Bouncy Castle
+     * lightweight API, see
+     * {@link CVCertificate#verifyLightweight(java.security.PublicKey)}
+     * 
+     * @param trustAnchors
+     *            trusted CVCA certificates, with domain parameters
+     * @param cacheSize
+     *            maximum number of cached intermediate certificates, 0 disables
+     *            the cache
+     * @param hotKeys
+     *            registry of keys with precomputed tables, or null
+     * @return
+     * @throws CertificateException
+     *             if a trust anchor is not a CVCA certificate with domain
+     *             parameters
+     */
+    public static ChainValidator createLightweight(Collection<? extends CVCertificate> trustAnchors, int cacheSize,
+	    HotKeyRegistry hotKeys) throws CertificateException {
+	return new ChainValidator(trustAnchors, null, true, hotKeys, cacheSize);
+    }
+
+    private ChainValidator(Collection<? extends CVCertificate> trustAnchors, String provider, boolean lightweight,
+	    HotKeyRegistry hotKeys, final int cacheSize) throws CertificateException {
+	if (cacheSize < 0) {
+	    throw new IllegalArgumentException("Negative cache size: " + cacheSize);
+	}
+	for (CVCertificate anchor : trustAnchors) {
+	    Issuer issuer = new Issuer(anchor, getPublicKey(anchor), null);
+	    if (!issuer.role.isCVCA()) {
+		throw new CertificateException("Trust anchor is not a CVCA: " + issuer.holderReference);
+	    }
+	    if (issuer.key instanceof PublicKeyEC && ((PublicKeyEC) issuer.key).getParams() == null) {
+		throw new CertificateException("Trust anchor has no domain parameters: " + issuer.holderReference);
+	    }
+	    this.trustAnchors.put(issuer.holderReference, issuer);
+	}
+	this.provider = provider;
+	this.lightweight = lightweight;
+	this.hotKeys = hotKeys;
+	this.validated = Collections.synchronizedMap(new LinkedHashMap<ReferenceValue, Issuer>(16, 0.75f, true) {
+	    private static final long serialVersionUID = 1L;
+
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<ReferenceValue, Issuer> eldest) {
+		return size() > cacheSize;
+	    }
+	});
+    }
+
+    /**
+     * Validates 'certificate' at the current time
+     * 
+     * @see #validate(CVCertificate, Collection, Date)
+     */
+    public CVCPublicKey validate(CVCertificate certificate, Collection<? extends CVCertificate> intermediates)
+	    throws CertificateException, NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException,
+	    SignatureException {
+	return validate(certificate, intermediates, new Date());
+    }
+
+    /**
+     * Validates the chain from a trusted CVCA to 'certificate'. Issuers are
+     * looked up in the cache of validated certificates, the trust anchors and
+     * 'intermediates', in this order.
+     * 
+     * @param certificate
+     * @param intermediates
+     *            DV and CVCA link certificates which may be needed to build the
+     *            chain
+     * @param date
+     *            validation date
+     * @return the public key of 'certificate', with the domain parameters
+     *         inherited from the CVCA
+     * @throws CertificateExpiredException
+     *             if a certificate in the chain is expired
+     * @throws CertificateNotYetValidException
+     *             if a certificate in the chain is not yet valid
+     * @throws CertificateException
+     *             if no chain can be built or the roles don't match
+     * @throws SignatureException
+     *             if a signature in the chain is not valid
+     */
+    public CVCPublicKey validate(CVCertificate certificate, Collection<? extends CVCertificate> intermediates,
+	    Date date) throws CertificateException, NoSuchAlgorithmException, NoSuchProviderException,
+	    InvalidKeyException, SignatureException {
+	// Find the chain up to a validated issuer
+	List<CVCertificate> chain = new ArrayList<CVCertificate>();
+	Map<ReferenceValue, CVCertificate> candidates = null;
+	CVCertificate current = certificate;
+	Issuer issuer = null;
+	while (issuer == null) {
+	    chain.add(current);
+	    if (chain.size() > MAX_CHAIN_LENGTH) {
+		throw new CertificateException("Certificate chain is too long");
+	    }
+	    ReferenceValue authorityReference = getAuthorityReference(current);
+	    issuer = validated.get(authorityReference);
+	    if (issuer == null || !issuer.isValidAt(date)) {
+		issuer = trustAnchors.get(authorityReference);
+	    }
+	    if (issuer == null) {
+		if (candidates == null) {
+		    candidates = index(intermediates);
+		}
+		current = candidates.get(authorityReference);
+		if (current == null) {
+		    throw new CertificateException("Issuer not found: " + authorityReference);
+		}
+	    }
+	}
+
+	// Validate the chain top down. A cached issuer is valid at 'date' together
+	// with its own issuers.
+	checkValidity(issuer.certificate, date);
+	for (int i = chain.size() - 1; i >= 0; i--) {
+	    CVCertificate subject = chain.get(i);
+	    Issuer validatedSubject = new Issuer(subject, inheritDomainParameters(getPublicKey(subject), issuer.key),
+		    issuer);
+	    checkValidity(subject, date);
+	    checkRoles(issuer, validatedSubject);
+	    if (lightweight) {
+		subject.verifyLightweight(issuer.key, hotKeys);
+	    } else {
+		subject.verify(issuer.key, provider);
+	    }
+	    if (i > 0) {
+		validated.put(validatedSubject.holderReference, validatedSubject);
+	    }
+	    issuer = validatedSubject;
+	}
+	return issuer.key;
+    }
+
+    /**
+     * Removes all cached certificates
+     */
+    public void clearCache() {
+	validated.clear();
+    }
+
+    /**
+     * Returns the number of cached certificates
+     * 
+     * @return
+     */
+    public int getCacheSize() {
+	return validated.size();
+    }
+
+    // Indexes certificates by their 'Certificate Holder Reference'
+    private static Map<ReferenceValue, CVCertificate> index(Collection<? extends CVCertificate> certificates)
+	    throws CertificateException {
+	Map<ReferenceValue, CVCertificate> result = new HashMap<ReferenceValue, CVCertificate>();
+	if (certificates != null) {
+	    for (CVCertificate certificate : certificates) {
+		try {
+		    result.put(certificate.getCertificateBody().getHolderReference().getValue(), certificate);
+		} catch (NoSuchFieldException e) {
+		    throw new CertificateException("CV-Certificate is corrupt", e);
+		}
+	    }
+	}
+	return result;
+    }
+
+    private static ReferenceValue getAuthorityReference(CVCertificate certificate) throws CertificateException {
+	try {
+	    CAReferenceField authorityReference = certificate.getCertificateBody().getAuthorityReference();
+	    if (authorityReference == null) {
+		throw new CertificateException("Certificate has no CA reference");
+	    }
+	    return authorityReference.getValue();
+	} catch (NoSuchFieldException e) {
+	    throw new CertificateException("CV-Certificate is corrupt", e);
+	}
+    }
+
+    private static CVCPublicKey getPublicKey(CVCertificate certificate) throws CertificateException {
+	try {
+	    return certificate.getCertificateBody().getPublicKey();
+	} catch (NoSuchFieldException e) {
+	    throw new CertificateException("CV-Certificate is corrupt", e);
+	}
+    }
+
+    private static void checkValidity(CVCertificate certificate, Date date) throws CertificateException {
+	try {
+	    CVCertificateBody body = certificate.getCertificateBody();
+	    if (body.isNotYetValidAt(date.getTime())) {
+		throw new CertificateNotYetValidException("Certificate " + body.getHolderReference().getConcatenated()
+			+ " is not valid until " + body.getValidFrom());
+	    }
+	    if (body.isExpiredAt(date.getTime())) {
+		throw new CertificateExpiredException("Certificate " + body.getHolderReference().getConcatenated()
+			+ " expired " + body.getValidTo());
+	    }
+	} catch (NoSuchFieldException e) {
+	    throw new CertificateException("CV-Certificate is corrupt", e);
+	}
+    }
+
+    // CVCA certifies CVCA (link certificates) and DV, DV certifies terminals
+    private static void checkRoles(Issuer issuer, Issuer subject) throws CertificateException {
+	boolean allowed;
+	if (issuer.role.isCVCA()) {
+	    allowed = subject.role.isCVCA() || subject.role.isDV();
+	} else if (issuer.role.isDV()) {
+	    allowed = !subject.role.isCVCA() && !subject.role.isDV();
+	} else {
+	    allowed = false;
+	}
+	if (!allowed) {
+	    throw new CertificateException("Role " + issuer.role + " of " + issuer.holderReference
+		    + " can't certify role " + subject.role + " of " + subject.holderReference);
+	}
+    }
+
+    // Returns 'key' with the domain parameters of 'issuerKey' if it has none of
+    // its own
+    private static CVCPublicKey inheritDomainParameters(CVCPublicKey key, CVCPublicKey issuerKey)
+	    throws CertificateException {
+	if (!(key instanceof PublicKeyEC) || ((PublicKeyEC) key).getParams() != null) {
+	    return key;
+	}
+	if (!(issuerKey instanceof PublicKeyEC)) {
+	    throw new CertificateException("Issuer of EC key has no EC key");
+	}
+	try {
+	    return new PublicKeyEC((PublicKeyEC) key, (PublicKeyEC) issuerKey);
+	} catch (ConstructionException e) {
+	    throw new CertificateException("Can't inherit domain parameters", e);
+	} catch (NoSuchFieldException e) {
+	    throw new CertificateException("Can't inherit domain parameters", e);
+	}
+    }
+
+    /**
+     * A certificate which may issue certificates, with its key including
+     * domain parameters
+     */
+    private static final class Issuer {
+	final CVCertificate certificate;
+	final CVCPublicKey key;
+	final ReferenceValue holderReference;
+	final AuthorizationRole role;
+	// Period in which the certificate and all its issuers are valid
+	final long validFrom;
+	final long validTo;
+
+	Issuer(CVCertificate certificate, CVCPublicKey key, Issuer issuer) throws CertificateException {
+	    try {
+		CVCertificateBody body = certificate.getCertificateBody();
+		this.certificate = certificate;
+		this.key = key;
+		this.holderReference = body.getHolderReference().getValue();
+		this.role = body.getAuthorizationTemplate().getAuthorizationField().getAuthRole();
+		long from = body.getValidFromTime();
+		long to = body.getValidToTime();
+		this.validFrom = issuer == null ? from : Math.max(from, issuer.validFrom);
+		this.validTo = issuer == null ? to : Math.min(to, issuer.validTo);
+	    } catch (NoSuchFieldException e) {
+		throw new CertificateException("CV-Certificate is corrupt", e);
+	    }
+	}
+
+	boolean isValidAt(Date date) {
+	    long time = date.getTime();
+	    return validFrom <= time && time <= validTo;
+	}
+    }
+}
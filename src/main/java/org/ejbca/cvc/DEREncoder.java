@@ -0,0 +1,185 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.ejbca.cvc.internal.tlv.Length;
+
+/**
+ * DER-encoder writing a tree of CVCObjects in a single pass into a buffer of
+ * exactly the right size.
+ * <p>
+ * The encoding is done in two steps. {@link #measure(CVCObject)} walks the tree
+ * once, collects the values of the data fields and the subfields of the
+ * sequences and computes all lengths. {@link #write(ByteBuffer)} then writes tag,
+ * length and value of every object without any intermediate buffers.
+ * <p>
+ * Instances are not thread-safe and are meant to be used for one encoding only.
+ */
+final class DEREncoder {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final CVCObject[] roots;
+
+    // Mask of a sequence that has retained its DER-encoding from parsing
+    private static final int RETAINED = -1;
+
+    // Measured objects in pre-order. For data fields 'contents' holds the
+    // value (byte[]), for sequences the sequence itself and 'masks' the slots
+    // of the encodable subfields or RETAINED
+    private Object[] contents = new Object[INITIAL_CAPACITY];
+    private int[] contentLengths = new int[INITIAL_CAPACITY];
+    private int[] masks = new int[INITIAL_CAPACITY];
+    private int count;
+
+    private int size;
+
+    /**
+     * Prepares encoding of the given objects, which will be written after each
+     * other
+     * 
+     * @param objects
+     */
+    DEREncoder(CVCObject... objects) {
+	this.roots = objects;
+	for (CVCObject object : objects) {
+	    size += measure(object);
+	}
+    }
+
+    /**
+     * DER-encodes the given objects after each other into a new byte array
+     * 
+     * @param objects
+     * @return
+     */
+    static byte[] encode(CVCObject... objects) {
+	DEREncoder encoder = new DEREncoder(objects);
+	byte[] result = new byte[encoder.size()];
+	encoder.write(ByteBuffer.wrap(result));
+	return result;
+    }
+
+    /**
+     * Returns the total number of bytes that {@link #write(ByteBuffer)} will write
+     * 
+     * @return
+     */
+    int size() {
+	return size;
+    }
+
+    /**
+     * Writes the encoded objects at the current position of 'target'. Nothing is
+     * written if the remaining space is too small.
+     * 
+     * @param target
+     * @throws BufferOverflowException
+     *             if 'target' has less than {@link #size()} bytes remaining
+     */
+    void write(ByteBuffer target) {
+	if (target.remaining() < size) {
+	    throw new BufferOverflowException();
+	}
+	int next = 0;
+	for (CVCObject root : roots) {
+	    next = write(root, next, target);
+	}
+    }
+
+    /**
+     * Returns the number of bytes the tag of 'object' is encoded into
+     * 
+     * @param object
+     * @return
+     */
+    static int tagSize(CVCObject object) {
+	return object.getTag().getValue() > 0xFF ? 2 : 1;
+    }
+
+    // Records 'object' and its subfields, returns the encoded size including tag and length
+    private int measure(CVCObject object) {
+	int entry = reserve();
+	int contentLength;
+	if (object instanceof AbstractSequence && ((AbstractSequence) object).hasEncoded()) {
+	    // Already complete, including tag and length
+	    contents[entry] = object;
+	    masks[entry] = RETAINED;
+	    return ((AbstractSequence) object).getEncodedLength();
+	} else if (object instanceof AbstractSequence) {
+	    AbstractSequence sequence = (AbstractSequence) object;
+	    int mask = sequence.getEncodableMask();
+	    contents[entry] = sequence;
+	    masks[entry] = mask;
+	    contentLength = 0;
+	    for (int slot = 0; slot < sequence.getSlotCount(); slot++) {
+		if ((mask & (1 << slot)) != 0) {
+		    contentLength += measure(sequence.getSubfieldAt(slot));
+		}
+	    }
+	} else {
+	    byte[] value = ((AbstractDataField) object).getEncoded();
+	    contents[entry] = value;
+	    contentLength = value.length;
+	}
+	contentLengths[entry] = contentLength;
+	return tagSize(object) + Length.sizeOf(contentLength) + contentLength;
+    }
+
+    // Writes the object recorded at 'entry', returns the entry following its subtree
+    private int write(CVCObject object, int entry, ByteBuffer target) {
+	if (masks[entry] == RETAINED) {
+	    ((AbstractSequence) object).writeEncoded(target);
+	    return entry + 1;
+	}
+	int tag = object.getTag().getValue();
+	if (tag > 0xFF) {
+	    target.put((byte) (tag >> 8));
+	}
+	target.put((byte) tag);
+	Length.encode(contentLengths[entry], target);
+
+	Object content = contents[entry];
+	int next = entry + 1;
+	if (content instanceof byte[]) {
+	    target.put((byte[]) content);
+	} else {
+	    AbstractSequence sequence = (AbstractSequence) content;
+	    int mask = masks[entry];
+	    for (int slot = 0; slot < sequence.getSlotCount(); slot++) {
+		if ((mask & (1 << slot)) != 0) {
+		    next = write(sequence.getSubfieldAt(slot), next, target);
+		}
+	    }
+	}
+	return next;
+    }
+
+    private int reserve() {
+	if (count == contents.length) {
+	    Object[] newContents = new Object[count * 2];
+	    System.arraycopy(contents, 0, newContents, 0, count);
+	    contents = newContents;
+	    int[] newLengths = new int[count * 2];
+	    System.arraycopy(contentLengths, 0, newLengths, 0, count);
+	    contentLengths = newLengths;
+	    int[] newMasks = new int[count * 2];
+	    System.arraycopy(masks, 0, newMasks, 0, count);
+	    masks = newMasks;
+	}
+	return count++;
+    }
+}
@@ -1,141 +1,182 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
-
-/**
- * Represents a CVC field of type Date
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: DateField.java 23378 2016-05-09 12:55:41Z netmackan $
- * 
- */
-public class DateField extends AbstractDataField {
-
-    private static final long serialVersionUID = 6092901788235446614L;
-
-    /** The length of the array is always the same */
-    private static final int DATE_ARRAY_SIZE = 6;
-
-    /** Time Zone GMT must be used for effective and expiration dates */
-    private static final TimeZone GMTTIMEZONE = TimeZone.getTimeZone("GMT");
-
-    /** Date format when returning this object as text */
-    private static final DateFormat FORMAT_PRINTABLE = new SimpleDateFormat("yyyy-MM-dd");
-    static {
-	FORMAT_PRINTABLE.setTimeZone(GMTTIMEZONE);
-    }
-
-    private Date date;
-
-    DateField(CVCTagEnum type) {
-	super(type);
-    }
-
-    /**
-     * Constructs a new instance from tag and Date
-     * 
-     * @param type
-     * @param date
-     */
-    DateField(CVCTagEnum type, Date date) {
-	this(type);
-
-	Calendar cal = Calendar.getInstance(GMTTIMEZONE);
-	cal.setTimeInMillis(date.getTime());
-
-	// Remove time part
-	int year = cal.get(Calendar.YEAR);
-	int month = cal.get(Calendar.MONTH);
-	int day = cal.get(Calendar.DAY_OF_MONTH);
-	cal.clear();
-	cal.set(year, month, day);
-	this.date = cal.getTime();
-    }
-
-    /**
-     * Constructs instance by decoding DER-encoded data
-     * 
-     * @param type
-     * @param data
-     */
-    DateField(CVCTagEnum type, byte[] data) {
-	this(type);
-	if (data == null || data.length != 6) {
-	    throw new IllegalArgumentException(
-		    "data argument must have length 6, was " + (data == null ? 0 : data.length));
-	}
-	int year = 2000 + data[0] * 10 + data[1];
-	int month = data[2] * 10 + data[3] - 1; // Java month index starts with
-						// 0...
-	int day = data[4] * 10 + data[5];
-	// Now create a Date instance using the decoded values
-	Calendar cal = Calendar.getInstance(GMTTIMEZONE);
-	cal.clear();
-	if (type == CVCTagEnum.EFFECTIVE_DATE) {
-	    cal.set(year, month, day, 0, 0, 0);
-	} else { // EXPIRE_DATE
-	    // Validity is inclusive this date, so to make sure that
-	    // a Date comparison gives the expected result we add a
-	    // time component
-	    cal.set(year, month, day, 23, 59, 59);
-	}
-	date = cal.getTime();
-    }
-
-    /**
-     * Returns the date
-     * 
-     * @return
-     */
-    public Date getDate() {
-	return date;
-    }
-
-    /**
-     * Encodes the date value so that every number in '080407' is stored as an
-     * individual byte
-     *
-     * @return
-     */
-    @Override
-    protected byte[] getEncoded() {
-	byte[] dateArr = new byte[DATE_ARRAY_SIZE];
-
-	Calendar cal = Calendar.getInstance(GMTTIMEZONE);
-	cal.setTimeInMillis(date.getTime());
-	int year = cal.get(Calendar.YEAR) - 2000; // Year is encoded as 08, 09,
-						  // 10 ...
-	int month = cal.get(Calendar.MONTH) + 1; // Month is encoded as 1,2, ...
-						 // ,12
-	int day = cal.get(Calendar.DAY_OF_MONTH);
-	dateArr[0] = (byte) (year / 10);
-	dateArr[1] = (byte) (year % 10);
-	dateArr[2] = (byte) (month / 10);
-	dateArr[3] = (byte) (month % 10);
-	dateArr[4] = (byte) (day / 10);
-	dateArr[5] = (byte) (day % 10);
-	return dateArr;
-    }
-
-    @Override
-    protected String valueAsText() {
-	return FORMAT_PRINTABLE.format(date);
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.util.Date;
+
+/**
+ * Represents a CVC field of type Date
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: DateField.java 23378 2016-05-09 12:55:41Z netmackan $
+ * 
+ */
+public class DateField extends AbstractDataField {
+
+    private static final long serialVersionUID = 7866164508768563618L;
+
+    /** The length of the array is always the same */
+    private static final int DATE_ARRAY_SIZE = 6;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private static final long END_OF_DAY = MILLIS_PER_DAY - 1000;
+
+    // Days since 1970-01-01 (GMT), dates are always in GMT
+    private final int epochDay;
+
+    // True if the time is 23:59:59 instead of 00:00:00
+    private final boolean endOfDay;
+
+    /**
+     * Constructs a new instance from tag and Date. The time part is removed.
+     * 
+     * @param type
+     * @param date
+     */
+    DateField(CVCTagEnum type, Date date) {
+	super(type);
+	long millis = date.getTime();
+	long day = millis / MILLIS_PER_DAY;
+	if (millis % MILLIS_PER_DAY < 0) {
+	    day--;
+	}
+	this.epochDay = (int) day;
+	this.endOfDay = false;
+    }
+
+    /**
+     * Constructs instance by decoding DER-encoded data
+     * 
+     * @param type
+     * @param data
+     */
+    DateField(CVCTagEnum type, byte[] data) {
+	super(type);
+	if (data == null || data.length != DATE_ARRAY_SIZE) {
+	    throw new IllegalArgumentException(
+		    "data argument must have length 6, was " + (data == null ? 0 : data.length));
+	}
+	int year = 2000 + data[0] * 10 + data[1];
+	int month = data[2] * 10 + data[3];
+	int day = data[4] * 10 + data[5];
+	this.epochDay = toEpochDay(year, month, day);
+	// Validity is inclusive the expiration date, so to make sure that a Date
+	// comparison gives the expected result we add a time component
+	this.endOfDay = type == CVCTagEnum.EXPIRATION_DATE;
+    }
+
+    /**
+     * Returns the date. The time is 00:00:00 GMT, except for a decoded
+     * 'Expiration Date' where it is 23:59:59 GMT.
+     * 
+     * @return
+     */
+    public Date getDate() {
+	return new Date(getTime());
+    }
+
+    /**
+     * Same as getDate().getTime() but without creating a Date
+     * 
+     * @return
+     */
+    public long getTime() {
+	return epochDay * MILLIS_PER_DAY + (endOfDay ? END_OF_DAY : 0);
+    }
+
+    /**
+     * Returns the date as number of days since 1970-01-01
+     * 
+     * @return
+     */
+    public int getEpochDay() {
+	return epochDay;
+    }
+
+    /**
+     * Encodes the date value so that every number in '080407' is stored as an
+     * individual byte
+     *
+     * @return
+     */
+    @Override
+    protected byte[] getEncoded() {
+	int[] ymd = fromEpochDay(epochDay);
+	int year = ymd[0] - 2000; // Year is encoded as 08, 09, 10 ...
+	int month = ymd[1];
+	int day = ymd[2];
+	byte[] dateArr = new byte[DATE_ARRAY_SIZE];
+	dateArr[0] = (byte) (year / 10);
+	dateArr[1] = (byte) (year % 10);
+	dateArr[2] = (byte) (month / 10);
+	dateArr[3] = (byte) (month % 10);
+	dateArr[4] = (byte) (day / 10);
+	dateArr[5] = (byte) (day % 10);
+	return dateArr;
+    }
+
+    @Override
+    protected String valueAsText() {
+	int[] ymd = fromEpochDay(epochDay);
+	StringBuilder sb = new StringBuilder(10);
+	appendDigits(sb, ymd[0], 4).append('-');
+	appendDigits(sb, ymd[1], 2).append('-');
+	return appendDigits(sb, ymd[2], 2).toString();
+    }
+
+    private static StringBuilder appendDigits(StringBuilder sb, int value, int digits) {
+	String text = Integer.toString(value);
+	for (int i = text.length(); i < digits; i++) {
+	    sb.append('0');
+	}
+	return sb.append(text);
+    }
+
+    /*
+     * Conversion between the proleptic Gregorian calendar and days since
+     * 1970-01-01, see http://howardhinnant.github.io/date_algorithms.html. The
+     * year starts in March, so that the leap day is the last day of the year.
+     * Months and days out of range are carried over like a lenient Calendar
+     * does, e g 2010-02-30 is 2010-03-02.
+     */
+    static int toEpochDay(int year, int month, int day) {
+	// Carry months out of range into the year
+	int carry = (month > 0 ? month - 1 : month - 12) / 12;
+	year += carry;
+	month -= carry * 12;
+	if (month <= 2) {
+	    year--;
+	}
+	int era = (year >= 0 ? year : year - 399) / 400;
+	int yearOfEra = year - era * 400;
+	int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+	int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+	return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Returns year, month (1-12) and day of month
+    static int[] fromEpochDay(int epochDay) {
+	int z = epochDay + 719468;
+	int era = (z >= 0 ? z : z - 146096) / 146097;
+	int dayOfEra = z - era * 146097;
+	int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+	int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+	int mp = (5 * dayOfYear + 2) / 153;
+	int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+	int month = mp < 10 ? mp + 3 : mp - 9;
+	int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+	return new int[] { year, month, day };
+    }
+
+}
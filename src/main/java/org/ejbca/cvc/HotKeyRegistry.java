@@ -0,0 +1,305 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.math.BigInteger;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+
+/**
+ * Registry of EC keys which verify with precomputed multiplication tables.
+ * <p>
+ * ECDSA verification computes u1*G + u2*Q. For a registered key a fixed-base
+ * comb table is precomputed for the base point G and the public point Q, so
+ * both multiplications need only a fraction of the point doublings. The tables
+ * are used by {@link LightweightVerifier} when a registry is passed to
+ * {@link CVCertificate#verifyLightweight(java.security.PublicKey, HotKeyRegistry)}.
+ * <p>
+ * The estimated memory of all tables is limited by a budget (see
+ * {@link #setMemoryBudget(long)}). When it is exceeded the least recently used
+ * keys are dropped. Uses are only ordered by the registrations between them,
+ * so a lookup writes to a key at most once between two registrations and
+ * concurrent verifications don't contend for it. Registering is meant for the few CVCA and DV keys which
+ * verify most of the certificates, keys are looked up by comparing their
+ * fingerprints with the registered ones. Instances are thread-safe.
+ */
+public final class HotKeyRegistry {
+
+    /** Default memory budget for the tables, in bytes */
+    public static final long DEFAULT_MEMORY_BUDGET = 4L * 1024 * 1024;
+
+    // Estimated heap size of an ECPoint and of a field element without its value
+    private static final int POINT_OVERHEAD = 96;
+    private static final int FIELD_ELEMENT_OVERHEAD = 80;
+
+    // Replaced on every change, so that lookups need no lock
+    private volatile HotKey[] keys = new HotKey[0];
+    // Number of registrations, keys record the value at their last use
+    private volatile long epoch;
+
+    private long memoryBudget;
+
+    /**
+     * Creates a registry with the default memory budget
+     */
+    public HotKeyRegistry() {
+	this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Creates a registry
+     * 
+     * @param memoryBudget
+     *            memory budget for the tables, in bytes
+     */
+    public HotKeyRegistry(long memoryBudget) {
+	if (memoryBudget < 0) {
+	    throw new IllegalArgumentException("Negative memory budget: " + memoryBudget);
+	}
+	this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Precomputes the tables for 'key' and adds it to the registry. Keys which
+     * don't fit into the memory budget are dropped, starting with the least
+     * recently used ones.
+     * 
+     * @param key
+     * @throws InvalidKeyException
+     *             if the key has no domain parameters
+     */
+    public void register(PublicKeyEC key) throws InvalidKeyException {
+	ECPublicKeyParameters keyParameters = (ECPublicKeyParameters) key.getKeyParameters();
+	byte[] fingerprint = key.getFingerprint();
+	if (find(fingerprint, keyParameters.getParameters()) != null) {
+	    return;
+	}
+	HotKey hotKey = new HotKey(fingerprint, keyParameters);
+	synchronized (this) {
+	    if (find(fingerprint, keyParameters.getParameters()) == null) {
+		hotKey.lastUsed = epoch++;
+		HotKey[] result = Arrays.copyOf(keys, keys.length + 1);
+		result[keys.length] = hotKey;
+		keys = evict(result);
+	    }
+	}
+    }
+
+    /**
+     * Removes 'key' from the registry
+     * 
+     * @param key
+     * @return true if the key was registered
+     */
+    public synchronized boolean unregister(PublicKeyEC key) {
+	byte[] fingerprint = key.getFingerprint();
+	HotKey[] current = keys;
+	for (int i = 0; i < current.length; i++) {
+	    if (Arrays.equals(fingerprint, current[i].fingerprint)) {
+		HotKey[] result = new HotKey[current.length - 1];
+		System.arraycopy(current, 0, result, 0, i);
+		System.arraycopy(current, i + 1, result, i, result.length - i);
+		keys = result;
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Returns true if 'key' is registered
+     * 
+     * @param key
+     * @return
+     */
+    public boolean isRegistered(PublicKeyEC key) {
+	try {
+	    return find(key.getFingerprint(), ((ECPublicKeyParameters) key.getKeyParameters()).getParameters()) != null;
+	} catch (InvalidKeyException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Removes all keys
+     */
+    public synchronized void clear() {
+	keys = new HotKey[0];
+    }
+
+    /**
+     * Sets the memory budget for the tables. Keys exceeding a reduced budget are
+     * dropped immediately.
+     * 
+     * @param bytes
+     */
+    public synchronized void setMemoryBudget(long bytes) {
+	if (bytes < 0) {
+	    throw new IllegalArgumentException("Negative memory budget: " + bytes);
+	}
+	memoryBudget = bytes;
+	keys = evict(keys);
+    }
+
+    /**
+     * Returns the memory budget for the tables
+     * 
+     * @return
+     */
+    public synchronized long getMemoryBudget() {
+	return memoryBudget;
+    }
+
+    /**
+     * Returns the estimated memory used by the tables of all registered keys
+     * 
+     * @return
+     */
+    public long getMemoryUsage() {
+	return getMemoryUsage(keys);
+    }
+
+    /**
+     * Returns the registered key with 'fingerprint' and domain parameters
+     * 'domain', or null
+     * 
+     * @param fingerprint
+     *            see {@link CVCPublicKey#getFingerprint()}
+     * @param domain
+     * @return
+     */
+    HotKey find(byte[] fingerprint, ECDomainParameters domain) {
+	long current = epoch;
+	for (HotKey hotKey : keys) {
+	    if (Arrays.equals(fingerprint, hotKey.fingerprint) && hotKey.matches(domain)) {
+		// Only the first use since the last registration is written
+		if (hotKey.lastUsed != current) {
+		    hotKey.lastUsed = current;
+		}
+		return hotKey;
+	    }
+	}
+	return null;
+    }
+
+    private static long getMemoryUsage(HotKey[] keys) {
+	long usage = 0;
+	for (HotKey hotKey : keys) {
+	    usage += hotKey.size;
+	}
+	return usage;
+    }
+
+    // Drops least recently used keys until the budget is kept, of keys used in
+    // the same epoch the first registered. Must be called with the lock on this
+    // registry.
+    private HotKey[] evict(HotKey[] keys) {
+	long usage = getMemoryUsage(keys);
+	while (usage > memoryBudget) {
+	    int oldest = 0;
+	    for (int i = 1; i < keys.length; i++) {
+		if (keys[i].lastUsed < keys[oldest].lastUsed) {
+		    oldest = i;
+		}
+	    }
+	    usage -= keys[oldest].size;
+	    HotKey[] result = new HotKey[keys.length - 1];
+	    System.arraycopy(keys, 0, result, 0, oldest);
+	    System.arraycopy(keys, oldest + 1, result, oldest, result.length - oldest);
+	    keys = result;
+	}
+	return keys;
+    }
+
+    /**
+     * A public key with precomputed tables for its base point and public point
+     */
+    static final class HotKey {
+	private final byte[] fingerprint;
+	private final ECDomainParameters domain;
+	private final ECPoint g;
+	private final ECPoint q;
+	private final ECMultiplier multiplier = new FixedPointCombMultiplier();
+	private final long size;
+	volatile long lastUsed;
+
+	HotKey(byte[] fingerprint, ECPublicKeyParameters keyParameters) {
+	    this.fingerprint = fingerprint;
+	    domain = keyParameters.getParameters();
+	    // Own instances of the points, since the tables are attached to them
+	    g = copy(domain.getG());
+	    q = copy(keyParameters.getQ());
+	    size = precompute(g) + precompute(q);
+	}
+
+	/**
+	 * Verifies an ECDSA signature (r, s) of 'hash' in the same way as
+	 * ECDSASigner
+	 * 
+	 * @param hash
+	 * @param r
+	 * @param s
+	 * @return
+	 */
+	boolean verifySignature(byte[] hash, BigInteger r, BigInteger s) {
+	    BigInteger n = domain.getN();
+	    if (r.signum() <= 0 || r.compareTo(n) >= 0 || s.signum() <= 0 || s.compareTo(n) >= 0) {
+		return false;
+	    }
+	    BigInteger e = new BigInteger(1, hash);
+	    int hashBits = hash.length * 8;
+	    if (n.bitLength() < hashBits) {
+		e = e.shiftRight(hashBits - n.bitLength());
+	    }
+	    BigInteger c = s.modInverse(n);
+	    BigInteger u1 = e.multiply(c).mod(n);
+	    BigInteger u2 = r.multiply(c).mod(n);
+
+	    ECPoint point = multiplier.multiply(g, u1).add(multiplier.multiply(q, u2)).normalize();
+	    if (point.isInfinity()) {
+		return false;
+	    }
+	    return point.getAffineXCoord().toBigInteger().mod(n).equals(r);
+	}
+
+	// True if the key is used with the same domain parameters
+	boolean matches(ECDomainParameters other) {
+	    return domain == other
+		    || (domain.getCurve().equals(other.getCurve()) && domain.getG().equals(other.getG())
+			    && domain.getN().equals(other.getN()));
+	}
+
+	private static ECPoint copy(ECPoint point) {
+	    return point.getCurve().decodePoint(point.getEncoded(false));
+	}
+
+	// Creates the table of 'point' and returns its estimated size
+	private static long precompute(ECPoint point) {
+	    int points = FixedPointUtil.precompute(point, widthFor(point)).getPreComp().length;
+	    int fieldBytes = (point.getCurve().getFieldSize() + 7) / 8;
+	    return (long) points * (2 * (fieldBytes + FIELD_ELEMENT_OVERHEAD) + POINT_OVERHEAD);
+	}
+
+	// Same width as chosen by FixedPointCombMultiplier
+	private static int widthFor(ECPoint point) {
+	    return FixedPointUtil.getCombSize(point.getCurve()) > 257 ? 6 : 5;
+	}
+    }
+}
@@ -12,7 +12,6 @@
  *************************************************************************/
 package org.ejbca.cvc;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.cert.CRL;
@@ -29,8 +28,8 @@ import org.ejbca.cvc.exception.ParseException;
 /**
  * Class for dealing with CVC certificates.
  * <p>
- * At the moment this will deal with binary encoded CVC certificates. Only one
- * CVC certificate can be in the input stream passed. Bouncy Castle's
+ * At the moment this will deal with binary encoded CVC certificates. The input
+ * stream may contain several concatenated certificates. Bouncy Castle's
  * JDKX509CertificateFactory was used as template for this class.
  * 
  * @author Keijo Kurkinen, Swedish National Police Board
@@ -38,30 +37,44 @@ import org.ejbca.cvc.exception.ParseException;
  */
 public class JDKCVCertificateFactory extends CertificateFactorySpi {
 
-    private byte[] readBytes(InputStream in) throws IOException {
-	ByteArrayOutputStream os = new ByteArrayOutputStream();
-	int len = 0;
-	byte[] buf = new byte[512];
-	while ((len = in.read(buf)) > 0) {
-	    os.write(buf, 0, len);
+    /**
+     * Generates a certificate object and initializes it with the data read from the
+     * input stream inStream. Only the bytes of the certificate are read from the
+     * stream.
+     */
+    public Certificate engineGenerateCertificate(InputStream in) throws CertificateException {
+	Certificate cert = readCertificate(new CVCObjectReader(in));
+	if (cert == null) {
+	    throw new CertificateException("No CVC certificate in stream");
 	}
-	in.close();
-	os.close();
-
-	return os.toByteArray();
+	return cert;
     }
 
     /**
-     * Generates a certificate object and initializes it with the data read from the
-     * input stream inStream.
+     * Returns a (possibly empty) collection view of the certificates read from the
+     * given input stream inStream.
      */
-    public Certificate engineGenerateCertificate(InputStream in) throws CertificateException {
-	Certificate ret = null;
+    public Collection<Certificate> engineGenerateCertificates(InputStream inStream) throws CertificateException {
+	CVCObjectReader reader = new CVCObjectReader(inStream);
+	ArrayList<Certificate> certs = new ArrayList<Certificate>();
+	Certificate cert;
+	while ((cert = readCertificate(reader)) != null) {
+	    certs.add(cert);
+	}
+	return certs;
+    }
 
+    // Returns the next certificate or null at the end of the stream
+    private Certificate readCertificate(CVCObjectReader reader) throws CertificateException {
 	try {
-	    byte[] certData = readBytes(in);
-	    CVCertificate parsedObject = CertificateParser.parseCertificate(certData);
-	    ret = new CardVerifiableCertificate(parsedObject);
+	    CVCObject parsedObject = reader.read();
+	    if (parsedObject == null) {
+		return null;
+	    }
+	    if (!(parsedObject instanceof CVCertificate)) {
+		throw new CertificateException("Not a CVC certificate: " + parsedObject.getTag());
+	    }
+	    return new CardVerifiableCertificate((CVCertificate) parsedObject);
 	} catch (IOException e) {
 	    throw new CertificateException(e.toString());
 	} catch (ParseException e) {
@@ -69,20 +82,6 @@ public class JDKCVCertificateFactory extends CertificateFactorySpi {
 	} catch (ConstructionException e) {
 	    throw new CertificateException(e.toString());
 	}
-	return ret;
-    }
-
-    /**
-     * Returns a (possibly empty) collection view of the certificate read from the
-     * given input stream inStream.
-     */
-    public Collection<Certificate> engineGenerateCertificates(InputStream inStream) throws CertificateException {
-	// CVC can only have one certificate in a stream
-	Certificate cert = engineGenerateCertificate(inStream);
-	ArrayList<Certificate> certs = new ArrayList<Certificate>();
-	certs.add(cert);
-
-	return certs;
     }
 
     /**
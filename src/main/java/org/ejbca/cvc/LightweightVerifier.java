@@ -0,0 +1,182 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Signer;
+import org.bouncycastle.crypto.digests.SHA1Digest;
+import org.bouncycastle.crypto.digests.SHA224Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA384Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.engines.RSAEngine;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.params.RSAKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.PSSSigner;
+import org.bouncycastle.crypto.signers.RSADigestSigner;
+import org.bouncycastle.jcajce.provider.asymmetric.util.ECUtil;
+
+/**
+ * Verifies signatures with the Bouncy Castle lightweight API instead of a JCA
+ * Signature.
+ * <p>
+ * The engine is used by {@link CVCertificate#verifyLightweight(PublicKey)} and
+ * {@link CVCAuthenticatedRequest#verifyLightweight(PublicKey)}. ECDSA signatures
+ * are verified on the plain r and s values of the CVC signature, so they are
+ * never converted to X9.62. The key parameters of a CVCPublicKey are created
+ * once and cached in the key, there is neither a provider lookup nor a key
+ * translation when verifying. Keys registered in a {@link HotKeyRegistry}
+ * passed by the caller are verified using their precomputed tables.
+ */
+public final class LightweightVerifier {
+
+    private static final String WITH = "WITH";
+    private static final String ECDSA = "ECDSA";
+    private static final String RSA = "RSA";
+    private static final String RSA_PSS = "RSAANDMGF1";
+
+    private LightweightVerifier() {
+    }
+
+    /**
+     * Verifies 'signature' over 'tbs'
+     * 
+     * @param algorithm
+     *            name of the signature algorithm, e g "SHA256WITHECDSA"
+     * @param key
+     * @param tbs
+     *            the data To Be Signed, must be backed by an array
+     * @param signature
+     *            the signature as found in the CVC object, i e r || s for ECDSA
+     * @param hotKeys
+     *            registry of keys with precomputed tables, or null
+     * @throws SignatureException
+     *             if the signature is not valid
+     */
+    static void verify(String algorithm, PublicKey key, ByteBuffer tbs, byte[] signature, HotKeyRegistry hotKeys)
+	    throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+	int with = algorithm.indexOf(WITH);
+	if (with < 0) {
+	    throw new NoSuchAlgorithmException("Unsupported signature algorithm: " + algorithm);
+	}
+	Digest digest = createDigest(algorithm.substring(0, with));
+	String scheme = algorithm.substring(with + WITH.length());
+
+	byte[] data = tbs.array();
+	int offset = tbs.arrayOffset() + tbs.position();
+	int length = tbs.remaining();
+	boolean valid;
+	if (ECDSA.equals(scheme)) {
+	    valid = verifyECDSA(key, digest, data, offset, length, signature, hotKeys);
+	} else if (RSA.equals(scheme)) {
+	    valid = verify(new RSADigestSigner(digest), getRSAKeyParameters(key), data, offset, length, signature);
+	} else if (RSA_PSS.equals(scheme)) {
+	    // Salt length and MGF1 digest as in the JCA algorithms SHAxWITHRSAANDMGF1
+	    valid = verify(new PSSSigner(new RSAEngine(), digest, digest.getDigestSize()),
+		    getRSAKeyParameters(key), data, offset, length, signature);
+	} else {
+	    throw new NoSuchAlgorithmException("Unsupported signature algorithm: " + algorithm);
+	}
+	if (!valid) {
+	    throw new SignatureException("Signature verification failed!");
+	}
+    }
+
+    private static boolean verifyECDSA(PublicKey key, Digest digest, byte[] data, int offset, int length,
+	    byte[] signature, HotKeyRegistry hotKeys) throws InvalidKeyException, SignatureException {
+	ECPublicKeyParameters keyParameters = getECKeyParameters(key);
+	if (signature.length == 0 || signature.length % 2 != 0) {
+	    throw new SignatureException("Invalid length of ECDSA signature: " + signature.length);
+	}
+	int half = signature.length / 2;
+	BigInteger r = new BigInteger(1, Arrays.copyOfRange(signature, 0, half));
+	BigInteger s = new BigInteger(1, Arrays.copyOfRange(signature, half, signature.length));
+
+	byte[] hash = new byte[digest.getDigestSize()];
+	digest.update(data, offset, length);
+	digest.doFinal(hash, 0);
+
+	if (hotKeys != null) {
+	    HotKeyRegistry.HotKey hotKey = hotKeys.find(CVCPublicKey.getFingerprint(key), keyParameters.getParameters());
+	    if (hotKey != null) {
+		return hotKey.verifySignature(hash, r, s);
+	    }
+	}
+	ECDSASigner signer = new ECDSASigner();
+	signer.init(false, keyParameters);
+	return signer.verifySignature(hash, r, s);
+    }
+
+    private static boolean verify(Signer signer, CipherParameters keyParameters, byte[] data, int offset, int length,
+	    byte[] signature) {
+	signer.init(false, keyParameters);
+	signer.update(data, offset, length);
+	return signer.verifySignature(signature);
+    }
+
+    private static Digest createDigest(String name) throws NoSuchAlgorithmException {
+	if ("SHA1".equals(name)) {
+	    return new SHA1Digest();
+	} else if ("SHA224".equals(name)) {
+	    return new SHA224Digest();
+	} else if ("SHA256".equals(name)) {
+	    return new SHA256Digest();
+	} else if ("SHA384".equals(name)) {
+	    return new SHA384Digest();
+	} else if ("SHA512".equals(name)) {
+	    return new SHA512Digest();
+	}
+	throw new NoSuchAlgorithmException("Unsupported digest algorithm: " + name);
+    }
+
+    private static ECPublicKeyParameters getECKeyParameters(PublicKey key) throws InvalidKeyException {
+	AsymmetricKeyParameter keyParameters;
+	if (key instanceof CVCPublicKey) {
+	    keyParameters = ((CVCPublicKey) key).getKeyParameters();
+	} else if (key instanceof ECPublicKey) {
+	    keyParameters = ECUtil.generatePublicKeyParameter(key);
+	} else {
+	    throw new InvalidKeyException("Not an EC key: " + key.getClass().getName());
+	}
+	if (!(keyParameters instanceof ECPublicKeyParameters)) {
+	    throw new InvalidKeyException("Not an EC key: " + key.getAlgorithm());
+	}
+	return (ECPublicKeyParameters) keyParameters;
+    }
+
+    private static RSAKeyParameters getRSAKeyParameters(PublicKey key) throws InvalidKeyException {
+	if (key instanceof CVCPublicKey) {
+	    AsymmetricKeyParameter keyParameters = ((CVCPublicKey) key).getKeyParameters();
+	    if (keyParameters instanceof RSAKeyParameters) {
+		return (RSAKeyParameters) keyParameters;
+	    }
+	} else if (key instanceof RSAPublicKey) {
+	    RSAPublicKey rsaKey = (RSAPublicKey) key;
+	    return new RSAKeyParameters(false, rsaKey.getModulus(), rsaKey.getPublicExponent());
+	}
+	throw new InvalidKeyException("Not an RSA key: " + key.getAlgorithm());
+    }
+}
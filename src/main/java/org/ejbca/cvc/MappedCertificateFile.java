@@ -0,0 +1,216 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.exception.ParseException;
+import org.ejbca.cvc.internal.tlv.Length;
+import org.ejbca.cvc.internal.tlv.Tag;
+
+/**
+ * Random access to a file of concatenated DER-encoded certificates.
+ * <p>
+ * The file is memory mapped and opening it only scans the tags and lengths of
+ * the top level objects to build an index of their offsets. Files larger than
+ * 2GB are mapped in several regions, every object lies completely within one
+ * region. The certificates are handed out as {@link CVCertificateView}s on the
+ * mapped data, which is read by the operating system on demand.
+ * <p>
+ * Instances are thread-safe. The file must not be modified while it is open.
+ * The mapped regions are released by the garbage collector, not by
+ * {@link #close()}.
+ */
+public final class MappedCertificateFile implements Closeable {
+
+    private static final int INITIAL_INDEX_SIZE = 1024;
+
+    private final RandomAccessFile file;
+    private final List<ByteBuffer> regions = new ArrayList<ByteBuffer>();
+    // Region, offset within the region and length of every object
+    private final int[] objectRegions;
+    private final int[] objectOffsets;
+    private final int[] objectLengths;
+    private final int count;
+
+    /**
+     * Maps 'file' and indexes the objects in it
+     * 
+     * @param file
+     * @throws ParseException
+     *             if the file does not consist of complete DER-encoded objects
+     */
+    public MappedCertificateFile(File file) throws IOException, ParseException {
+	this(file, Integer.MAX_VALUE);
+    }
+
+    // Maps regions of at most 'regionSize' bytes
+    MappedCertificateFile(File file, int regionSize) throws IOException, ParseException {
+	this.file = new RandomAccessFile(file, "r");
+	try {
+	    Index index = new Index();
+	    scan(this.file.getChannel(), regionSize, index);
+	    this.objectRegions = index.regions;
+	    this.objectOffsets = index.offsets;
+	    this.objectLengths = index.lengths;
+	    this.count = index.count;
+	} catch (IOException e) {
+	    this.file.close();
+	    throw e;
+	} catch (ParseException e) {
+	    this.file.close();
+	    throw e;
+	}
+    }
+
+    /**
+     * Returns the number of objects in the file
+     * 
+     * @return
+     */
+    public int size() {
+	return count;
+    }
+
+    /**
+     * Returns a view of the certificate at 'index'. No data is read until an
+     * accessor of the view is called.
+     * 
+     * @param index
+     * @return
+     */
+    public CVCertificateView getView(int index) {
+	return new CVCertificateView(getEncoded(index));
+    }
+
+    /**
+     * Parses the certificate at 'index'
+     * 
+     * @param index
+     * @return
+     */
+    public CVCertificate getCertificate(int index) throws ParseException, ConstructionException {
+	return CertificateParser.parseCertificate(getEncoded(index));
+    }
+
+    /**
+     * Returns the DER-encoded object at 'index' as a read-only buffer of the
+     * mapped file
+     * 
+     * @param index
+     * @return
+     */
+    public ByteBuffer getEncoded(int index) {
+	if (index < 0 || index >= count) {
+	    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+	}
+	ByteBuffer buffer = regions.get(objectRegions[index]).duplicate();
+	buffer.position(objectOffsets[index]);
+	buffer.limit(objectOffsets[index] + objectLengths[index]);
+	return buffer.slice();
+    }
+
+    /**
+     * Closes the file
+     */
+    @Override
+    public void close() throws IOException {
+	file.close();
+    }
+
+    // Scans the tags and lengths of all top level objects
+    private void scan(FileChannel channel, int regionSize, Index index) throws IOException, ParseException {
+	long fileSize = channel.size();
+	long regionStart = 0;
+	ByteBuffer region = null;
+	int position = 0;
+	while (regionStart + position < fileSize) {
+	    int length = region == null ? -1 : objectLength(region, position);
+	    if (length < 0) {
+		// The object doesn't end within the region, map a new one starting with it
+		if (region != null && position == 0) {
+		    throw new ParseException("Object at offset " + regionStart + " too long");
+		}
+		regionStart += position;
+		position = 0;
+		region = map(channel, regionStart, (int) Math.min(regionSize, fileSize - regionStart));
+		if (objectLength(region, 0) < 0) {
+		    throw new ParseException("Object at offset " + regionStart + " exceeds the file or region");
+		}
+		continue;
+	    }
+	    index.add(regions.size() - 1, position, length);
+	    position += length;
+	}
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long start, int size) throws IOException {
+	MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+	regions.add(region.asReadOnlyBuffer());
+	return region;
+    }
+
+    // Returns the length of the object at 'position' including tag and length, or
+    // -1 if it doesn't end within 'region'
+    private static int objectLength(ByteBuffer region, int position) throws ParseException {
+	ByteBuffer header = region.duplicate();
+	header.position(position);
+	try {
+	    Tag.parse(header);
+	    int length = Length.parse(header).getLength();
+	    if (length > header.remaining()) {
+		return -1;
+	    }
+	    return header.position() - position + length;
+	} catch (BufferUnderflowException e) {
+	    return -1;
+	} catch (IllegalArgumentException e) {
+	    throw new ParseException(e);
+	} catch (UnsupportedOperationException e) {
+	    throw new ParseException(e);
+	}
+    }
+
+    /**
+     * Growing arrays of the object positions
+     */
+    private static final class Index {
+	int[] regions = new int[INITIAL_INDEX_SIZE];
+	int[] offsets = new int[INITIAL_INDEX_SIZE];
+	int[] lengths = new int[INITIAL_INDEX_SIZE];
+	int count;
+
+	void add(int region, int offset, int length) {
+	    if (count == offsets.length) {
+		regions = Arrays.copyOf(regions, 2 * count);
+		offsets = Arrays.copyOf(offsets, 2 * count);
+		lengths = Arrays.copyOf(lengths, 2 * count);
+	    }
+	    regions[count] = region;
+	    offsets[count] = offset;
+	    lengths[count] = length;
+	    count++;
+	}
+    }
+}
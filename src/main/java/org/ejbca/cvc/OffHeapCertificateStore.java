@@ -0,0 +1,398 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Store of DER-encoded certificates outside the Java heap, indexed by
+ * 'Certificate Holder Reference'.
+ * <p>
+ * The certificates are copied into an arena of direct buffers (chunks), where
+ * a certificate never spans two chunks. The index is an open addressing hash
+ * table with linear probing, which is also kept in a direct buffer. A slot of
+ * the index holds the hash of the holder reference, the length of the
+ * certificate and the chunk and offset of its record. A record is the length
+ * of the holder reference (one byte), the holder reference and the
+ * certificate. So neither the certificates nor the index create objects on the
+ * heap, whatever the number of certificates.
+ * <p>
+ * Lookups return {@link CVCertificateView}s or read-only slices of the arena,
+ * nothing is copied. The arena only grows: a replaced certificate keeps its
+ * space until {@link #clear()}. Holder references are compared byte by byte,
+ * as ISO-8859-1 (the references are ASCII).
+ * <p>
+ * Instances are thread-safe. Lookups only take a shared lock.
+ */
+public final class OffHeapCertificateStore {
+
+    /** Default size of a chunk of the arena */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int DEFAULT_INDEX_CAPACITY = 1024;
+
+    // Layout of a slot in the index. A slot with length 0 is empty.
+    private static final int SLOT_SIZE = 16;
+    private static final int SLOT_HASH = 0;
+    private static final int SLOT_LENGTH = 4;
+    private static final int SLOT_LOCATION = 8;
+
+    private static final int MAX_REFERENCE_LENGTH = 0xFF;
+
+    private final int chunkSize;
+    private final int initialIndexCapacity;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by 'lock'
+    private ByteBuffer[] chunks;
+    private int chunkPosition;
+    private ByteBuffer index;
+    private int indexMask;
+    private int size;
+
+    /**
+     * Creates a store with chunks of {@link #DEFAULT_CHUNK_SIZE} bytes
+     */
+    public OffHeapCertificateStore() {
+	this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a store with chunks of 'chunkSize' bytes, which is also the
+     * maximum length of a certificate including its holder reference
+     * 
+     * @param chunkSize
+     */
+    public OffHeapCertificateStore(int chunkSize) {
+	this(chunkSize, DEFAULT_INDEX_CAPACITY);
+    }
+
+    /**
+     * Creates a store with an initial index capacity, which is rounded up to a
+     * power of two
+     * 
+     * @param chunkSize
+     * @param indexCapacity
+     */
+    OffHeapCertificateStore(int chunkSize, int indexCapacity) {
+	if (chunkSize < 2) {
+	    throw new IllegalArgumentException("chunkSize too small: " + chunkSize);
+	}
+	if (indexCapacity < 1 || indexCapacity > 1 << 30) {
+	    throw new IllegalArgumentException("Invalid indexCapacity: " + indexCapacity);
+	}
+	this.chunkSize = chunkSize;
+	this.initialIndexCapacity = Integer.highestOneBit(indexCapacity * 2 - 1);
+	clear();
+    }
+
+    /**
+     * Copies 'certificate' into the store. A certificate with the same holder
+     * reference is replaced.
+     * 
+     * @param certificate
+     * @throws IllegalArgumentException
+     *             if the certificate is longer than a chunk
+     * @throws NoSuchFieldException
+     *             if the certificate has no holder reference
+     */
+    public void add(CVCertificate certificate) throws NoSuchFieldException {
+	add(certificate.getCertificateBody().getHolderReference().getEncoded(), certificate.getDEREncodedBuffer());
+    }
+
+    /**
+     * Copies the DER-encoded certificate starting at the current position of
+     * 'data' into the store, without parsing it into a CVCertificate. The
+     * position of 'data' is not changed. A certificate with the same holder
+     * reference is replaced.
+     * 
+     * @param data
+     * @throws ParseException
+     *             if the holder reference can't be found
+     * @throws IllegalArgumentException
+     *             if the certificate is longer than a chunk
+     */
+    public void add(ByteBuffer data) throws ParseException {
+	CVCertificateView view = new CVCertificateView(data);
+	ByteBuffer holderReference = view.getHolderReference();
+	if (holderReference == null) {
+	    throw new ParseException("Could not find " + CVCTagEnum.HOLDER_REFERENCE);
+	}
+	byte[] reference = new byte[holderReference.remaining()];
+	holderReference.get(reference);
+	add(reference, view.getEncoded());
+    }
+
+    /**
+     * Returns a view of the certificate with the given holder reference. The
+     * view reads the arena in place.
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return the view or null if not found
+     */
+    public CVCertificateView getView(String holderReference) {
+	ByteBuffer encoded = getEncoded(holderReference);
+	return encoded == null ? null : new CVCertificateView(encoded);
+    }
+
+    /**
+     * Returns the DER-encoded certificate with the given holder reference as a
+     * read-only slice of the arena
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return the certificate or null if not found
+     */
+    public ByteBuffer getEncoded(String holderReference) {
+	Lock readLock = lock.readLock();
+	readLock.lock();
+	try {
+	    int slot = findSlot(holderReference, hash(holderReference));
+	    if (index.getInt(slot + SLOT_LENGTH) == 0) {
+		return null;
+	    }
+	    long location = index.getLong(slot + SLOT_LOCATION);
+	    ByteBuffer chunk = chunks[(int) (location >>> 32)];
+	    int offset = (int) location;
+	    int start = offset + 1 + (chunk.get(offset) & 0xFF);
+	    ByteBuffer result = chunk.duplicate();
+	    result.limit(start + index.getInt(slot + SLOT_LENGTH));
+	    result.position(start);
+	    return result.slice().asReadOnlyBuffer();
+	} finally {
+	    readLock.unlock();
+	}
+    }
+
+    /**
+     * Returns true if a certificate with the given holder reference is stored
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return
+     */
+    public boolean contains(String holderReference) {
+	Lock readLock = lock.readLock();
+	readLock.lock();
+	try {
+	    return index.getInt(findSlot(holderReference, hash(holderReference)) + SLOT_LENGTH) != 0;
+	} finally {
+	    readLock.unlock();
+	}
+    }
+
+    /**
+     * Returns the number of certificates
+     * 
+     * @return
+     */
+    public int size() {
+	Lock readLock = lock.readLock();
+	readLock.lock();
+	try {
+	    return size;
+	} finally {
+	    readLock.unlock();
+	}
+    }
+
+    /**
+     * Returns the number of bytes allocated outside the heap, for chunks and the
+     * index
+     * 
+     * @return
+     */
+    public long getOffHeapSize() {
+	Lock readLock = lock.readLock();
+	readLock.lock();
+	try {
+	    return (long) chunks.length * chunkSize + index.capacity();
+	} finally {
+	    readLock.unlock();
+	}
+    }
+
+    /**
+     * Removes all certificates and releases the arena. Buffers returned before
+     * remain valid.
+     */
+    public void clear() {
+	Lock writeLock = lock.writeLock();
+	writeLock.lock();
+	try {
+	    chunks = new ByteBuffer[0];
+	    chunkPosition = chunkSize;
+	    index = ByteBuffer.allocateDirect(initialIndexCapacity * SLOT_SIZE);
+	    indexMask = initialIndexCapacity - 1;
+	    size = 0;
+	} finally {
+	    writeLock.unlock();
+	}
+    }
+
+    // Appends a record to the arena and adds or replaces its slot in the index
+    private void add(byte[] reference, ByteBuffer encoded) {
+	if (reference.length > MAX_REFERENCE_LENGTH) {
+	    throw new IllegalArgumentException("Holder reference too long: " + reference.length);
+	}
+	int length = encoded.remaining();
+	int recordLength = 1 + reference.length + length;
+	if (length == 0 || recordLength > chunkSize) {
+	    throw new IllegalArgumentException("Invalid certificate length: " + length);
+	}
+
+	Lock writeLock = lock.writeLock();
+	writeLock.lock();
+	try {
+	    if (chunkPosition + recordLength > chunkSize) {
+		ByteBuffer[] newChunks = new ByteBuffer[chunks.length + 1];
+		System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+		newChunks[chunks.length] = ByteBuffer.allocateDirect(chunkSize);
+		chunks = newChunks;
+		chunkPosition = 0;
+	    }
+	    ByteBuffer chunk = chunks[chunks.length - 1].duplicate();
+	    chunk.position(chunkPosition);
+	    chunk.put((byte) reference.length);
+	    chunk.put(reference);
+	    chunk.put(encoded.duplicate());
+	    long location = ((long) (chunks.length - 1) << 32) | chunkPosition;
+	    chunkPosition += recordLength;
+
+	    int hash = hash(reference);
+	    int slot = findSlot(reference, hash);
+	    if (index.getInt(slot + SLOT_LENGTH) == 0) {
+		size++;
+	    }
+	    putSlot(index, slot, hash, length, location);
+	    // Keep the load factor at most 1/2, so that probe sequences are short
+	    if (size > (indexMask + 1) / 2) {
+		resizeIndex();
+	    }
+	} finally {
+	    writeLock.unlock();
+	}
+    }
+
+    private void resizeIndex() {
+	int capacity = (indexMask + 1) * 2;
+	ByteBuffer newIndex = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+	int newMask = capacity - 1;
+	for (int slot = 0; slot < index.capacity(); slot += SLOT_SIZE) {
+	    int length = index.getInt(slot + SLOT_LENGTH);
+	    if (length != 0) {
+		int hash = index.getInt(slot + SLOT_HASH);
+		int i = hash & newMask;
+		while (newIndex.getInt(i * SLOT_SIZE + SLOT_LENGTH) != 0) {
+		    i = (i + 1) & newMask;
+		}
+		putSlot(newIndex, i * SLOT_SIZE, hash, length, index.getLong(slot + SLOT_LOCATION));
+	    }
+	}
+	index = newIndex;
+	indexMask = newMask;
+    }
+
+    private static void putSlot(ByteBuffer index, int slot, int hash, int length, long location) {
+	index.putInt(slot + SLOT_HASH, hash);
+	index.putInt(slot + SLOT_LENGTH, length);
+	index.putLong(slot + SLOT_LOCATION, location);
+    }
+
+    // Returns the position of the slot of 'reference', or of the empty slot
+    // where it belongs
+    private int findSlot(byte[] reference, int hash) {
+	int i = hash & indexMask;
+	while (true) {
+	    int slot = i * SLOT_SIZE;
+	    if (index.getInt(slot + SLOT_LENGTH) == 0
+		    || (index.getInt(slot + SLOT_HASH) == hash && matches(slot, reference))) {
+		return slot;
+	    }
+	    i = (i + 1) & indexMask;
+	}
+    }
+
+    // Same as findSlot(byte[], int) for a String, without converting it
+    private int findSlot(String reference, int hash) {
+	int i = hash & indexMask;
+	while (true) {
+	    int slot = i * SLOT_SIZE;
+	    if (index.getInt(slot + SLOT_LENGTH) == 0
+		    || (index.getInt(slot + SLOT_HASH) == hash && matches(slot, reference))) {
+		return slot;
+	    }
+	    i = (i + 1) & indexMask;
+	}
+    }
+
+    // Compares the holder reference of the record of 'slot' with 'reference'
+    private boolean matches(int slot, byte[] reference) {
+	long location = index.getLong(slot + SLOT_LOCATION);
+	ByteBuffer chunk = chunks[(int) (location >>> 32)];
+	int offset = (int) location;
+	if ((chunk.get(offset) & 0xFF) != reference.length) {
+	    return false;
+	}
+	for (int i = 0; i < reference.length; i++) {
+	    if (chunk.get(offset + 1 + i) != reference[i]) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    private boolean matches(int slot, String reference) {
+	long location = index.getLong(slot + SLOT_LOCATION);
+	ByteBuffer chunk = chunks[(int) (location >>> 32)];
+	int offset = (int) location;
+	if ((chunk.get(offset) & 0xFF) != reference.length()) {
+	    return false;
+	}
+	for (int i = 0; i < reference.length(); i++) {
+	    if ((chunk.get(offset + 1 + i) & 0xFF) != reference.charAt(i)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    // The hashes of a String and its ISO-8859-1 bytes are equal
+    private static int hash(byte[] reference) {
+	int hash = 0;
+	for (byte b : reference) {
+	    hash = 31 * hash + (b & 0xFF);
+	}
+	return spread(hash);
+    }
+
+    private static int hash(String reference) {
+	int hash = 0;
+	for (int i = 0; i < reference.length(); i++) {
+	    hash = 31 * hash + reference.charAt(i);
+	}
+	return spread(hash);
+    }
+
+    // Spreads the bits, the low bits select the slot
+    private static int spread(int hash) {
+	hash ^= (hash >>> 20) ^ (hash >>> 12);
+	return hash ^ (hash >>> 7) ^ (hash >>> 4);
+    }
+}
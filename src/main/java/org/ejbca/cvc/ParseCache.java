@@ -0,0 +1,207 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ejbca.cvc.exception.ConstructionException;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Cache of parsed certificates, for applications parsing the same DER-encoded
+ * certificates over and over.
+ * <p>
+ * The input is looked up by its hash, and a hit is only returned if the input
+ * is byte for byte equal to the cached one. The cache is limited both by the
+ * number of entries and by the total size of the cached DER-encodings; the
+ * least recently used entries are evicted first. The cache is split into
+ * segments with their own lock, so instances are thread-safe. Both limits are
+ * divided between the segments, small caches have fewer segments.
+ * <p>
+ * The returned certificates are shared between all callers parsing the same
+ * input, so they are frozen, see {@link AbstractSequence#freeze()}.
+ */
+public final class ParseCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    /**
+     * Creates a cache
+     * 
+     * @param maxEntries
+     *            maximum number of cached certificates
+     * @param maxBytes
+     *            maximum total length of the DER-encodings of the cached
+     *            certificates
+     */
+    public ParseCache(int maxEntries, long maxBytes) {
+	if (maxEntries < 0) {
+	    throw new IllegalArgumentException("Negative number of entries: " + maxEntries);
+	}
+	if (maxBytes < 0) {
+	    throw new IllegalArgumentException("Negative number of bytes: " + maxBytes);
+	}
+	// A power of two, but not more segments than entries. The limits are
+	// divided so that the shares add up to exactly the maximum.
+	int count = Integer.highestOneBit(Math.max(1, Math.min(SEGMENTS, maxEntries)));
+	segments = new Segment[count];
+	for (int i = 0; i < count; i++) {
+	    segments[i] = new Segment(maxEntries / count + (i < maxEntries % count ? 1 : 0),
+		    maxBytes / count + (i < maxBytes % count ? 1 : 0));
+	}
+    }
+
+    /**
+     * Returns the cached certificate for 'data', or parses and caches it
+     * 
+     * @param data
+     *            DER-encoded certificate without trailing data, not modified by
+     *            this method
+     * @return a frozen certificate
+     * @see CertificateParser#parseCertificate(byte[])
+     */
+    public CVCertificate parseCertificate(byte[] data) throws ParseException, ConstructionException {
+	Key key = new Key(data);
+	Segment segment = segments[key.hashCode & (segments.length - 1)];
+	CVCertificate certificate = segment.get(key);
+	if (certificate == null) {
+	    // The caller may modify 'data' later on. The copy is both parsed
+	    // without copying it again and used as key.
+	    byte[] copy = data.clone();
+	    certificate = ((CVCertificate) CertificateParser.parseOwnedCVCObject(copy, CVCTagEnum.CV_CERTIFICATE))
+		    .freeze();
+	    segment.put(new Key(copy, key.hashCode), certificate);
+	}
+	return certificate;
+    }
+
+    /**
+     * Returns the number of cached certificates
+     * 
+     * @return
+     */
+    public int size() {
+	int size = 0;
+	for (Segment segment : segments) {
+	    size += segment.size();
+	}
+	return size;
+    }
+
+    /**
+     * Returns the total length of the cached DER-encodings
+     * 
+     * @return
+     */
+    public long getCachedBytes() {
+	long bytes = 0;
+	for (Segment segment : segments) {
+	    bytes += segment.getBytes();
+	}
+	return bytes;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+	for (Segment segment : segments) {
+	    segment.clear();
+	}
+    }
+
+    /**
+     * The DER-encoded input. Keys are equal if the inputs are equal byte for byte.
+     */
+    private static final class Key {
+	final byte[] data;
+	final int hashCode;
+
+	Key(byte[] data) {
+	    this(data, spread(Arrays.hashCode(data)));
+	}
+
+	Key(byte[] data, int hashCode) {
+	    this.data = data;
+	    this.hashCode = hashCode;
+	}
+
+	// The low bits select the segment, so mix in the high bits
+	private static int spread(int hashCode) {
+	    return hashCode ^ (hashCode >>> 16);
+	}
+
+	@Override
+	public int hashCode() {
+	    return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+	    return other instanceof Key && Arrays.equals(data, ((Key) other).data);
+	}
+    }
+
+    /**
+     * Certificates in least recently used order
+     */
+    private static final class Segment {
+	private final LinkedHashMap<Key, CVCertificate> entries = new LinkedHashMap<Key, CVCertificate>(16, 0.75f,
+		true);
+	private final int maxEntries;
+	private final long maxBytes;
+	private long bytes;
+
+	Segment(int maxEntries, long maxBytes) {
+	    this.maxEntries = maxEntries;
+	    this.maxBytes = maxBytes;
+	}
+
+	synchronized CVCertificate get(Key key) {
+	    return entries.get(key);
+	}
+
+	synchronized void put(Key key, CVCertificate certificate) {
+	    if (key.data.length > maxBytes) {
+		return;
+	    }
+	    CVCertificate previous = entries.put(key, certificate);
+	    if (previous == null) {
+		bytes += key.data.length;
+	    }
+	    Iterator<Key> eldest = entries.keySet().iterator();
+	    while (entries.size() > maxEntries || bytes > maxBytes) {
+		bytes -= eldest.next().data.length;
+		eldest.remove();
+	    }
+	}
+
+	synchronized int size() {
+	    return entries.size();
+	}
+
+	synchronized long getBytes() {
+	    return bytes;
+	}
+
+	synchronized void clear() {
+	    entries.clear();
+	    bytes = 0;
+	}
+    }
+}
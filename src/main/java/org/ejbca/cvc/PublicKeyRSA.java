@@ -1,95 +1,153 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-import java.math.BigInteger;
-import java.security.interfaces.RSAPublicKey;
-
-import org.ejbca.cvc.exception.ConstructionException;
-
-/**
- * Implements handling of a public key of RSA type.
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: PublicKeyRSA.java 20720 2015-02-19 16:56:59Z mikekushner $
- */
-public class PublicKeyRSA extends CVCPublicKey implements RSAPublicKey {
-
-    private static final long serialVersionUID = 1L;
-    private static CVCTagEnum[] allowedFields = new CVCTagEnum[] { CVCTagEnum.OID, CVCTagEnum.MODULUS,
-	    CVCTagEnum.EXPONENT };
-
-    @Override
-    protected CVCTagEnum[] getAllowedFields() {
-	return allowedFields;
-    }
-
-    /**
-     * Constructs an instance from a GenericPublicKeyField
-     * 
-     * @param genericKey
-     * @throws NoSuchFieldException
-     */
-    PublicKeyRSA(GenericPublicKeyField genericKey) throws ConstructionException, NoSuchFieldException {
-	ByteField modulusField = (ByteField) genericKey.getSubfield(CVCTagEnum.MODULUS);
-	modulusField.setShowBitLength(true); // We want to see this when
-					     // printing as text
-
-	addSubfield(genericKey.getSubfield(CVCTagEnum.OID));
-	addSubfield(modulusField);
-	addSubfield(genericKey.getSubfield(CVCTagEnum.EXPONENT));
-    }
-
-    /**
-     * Constructs an instance from OIDField and RSAPublicKey
-     * 
-     * @param oid
-     * @param pubKey
-     */
-    PublicKeyRSA(OIDField oid, RSAPublicKey rsaKey) throws ConstructionException {
-	super();
-
-	addSubfield(oid);
-	addSubfield(new ByteField(CVCTagEnum.MODULUS, trimByteArray(rsaKey.getModulus().toByteArray()), true));
-	addSubfield(new ByteField(CVCTagEnum.EXPONENT, trimByteArray(rsaKey.getPublicExponent().toByteArray())));
-    }
-
-    public String getAlgorithm() {
-	return "RSA";
-    }
-
-    public String getFormat() {
-	return "CVC"; // TODO: This OK?
-    }
-
-    public BigInteger getPublicExponent() {
-	try {
-	    ByteField exp = (ByteField) getSubfield(CVCTagEnum.EXPONENT);
-	    return new BigInteger(1, exp.getData());
-	} catch (NoSuchFieldException e) {
-	    // This object has not been created correctly?
-	    throw new IllegalStateException(e);
-	}
-    }
-
-    public BigInteger getModulus() {
-	try {
-	    ByteField exp = (ByteField) getSubfield(CVCTagEnum.MODULUS);
-	    return new BigInteger(1, exp.getData());
-	} catch (NoSuchFieldException e) {
-	    // This object has not been created correctly?
-	    throw new IllegalStateException(e);
-	}
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.math.BigInteger;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.KeySpec;
+import java.security.spec.RSAPublicKeySpec;
+
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.params.RSAKeyParameters;
+import org.ejbca.cvc.exception.ConstructionException;
+
+/**
+ * Implements handling of a public key of RSA type.
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: PublicKeyRSA.java 20720 2015-02-19 16:56:59Z mikekushner $
+ */
+public class PublicKeyRSA extends CVCPublicKey implements RSAPublicKey {
+
+    private static final long serialVersionUID = 1L;
+    private static CVCTagEnum[] allowedFields = new CVCTagEnum[] { CVCTagEnum.OID, CVCTagEnum.MODULUS,
+	    CVCTagEnum.EXPONENT };
+    private static final SequenceSchema schema = new SequenceSchema(allowedFields);
+
+    // Cached values of the subfields
+    private transient volatile BigInteger modulus;
+    private transient volatile BigInteger publicExponent;
+
+    @Override
+    protected CVCTagEnum[] getAllowedFields() {
+	return allowedFields;
+    }
+
+    @Override
+    SequenceSchema getSchema() {
+	return schema;
+    }
+
+    /**
+     * Constructs an empty instance, the subfields are added when parsing
+     */
+    PublicKeyRSA() {
+    }
+
+    /**
+     * Constructs an instance from a GenericPublicKeyField
+     * 
+     * @param genericKey
+     * @throws NoSuchFieldException
+     */
+    PublicKeyRSA(GenericPublicKeyField genericKey) throws ConstructionException, NoSuchFieldException {
+	ByteField modulusField = (ByteField) genericKey.getSubfield(CVCTagEnum.MODULUS);
+	modulusField.setShowBitLength(true); // We want to see this when
+					     // printing as text
+
+	addSubfield(genericKey.getSubfield(CVCTagEnum.OID));
+	addSubfield(modulusField);
+	addSubfield(genericKey.getSubfield(CVCTagEnum.EXPONENT));
+    }
+
+    /**
+     * Constructs an instance from OIDField and RSAPublicKey
+     * 
+     * @param oid
+     * @param pubKey
+     */
+    PublicKeyRSA(OIDField oid, RSAPublicKey rsaKey) throws ConstructionException {
+	super();
+
+	addSubfield(oid);
+	addSubfield(new ByteField(CVCTagEnum.MODULUS, trimByteArray(rsaKey.getModulus().toByteArray()), true));
+	addSubfield(new ByteField(CVCTagEnum.EXPONENT, trimByteArray(rsaKey.getPublicExponent().toByteArray())));
+    }
+
+    @Override
+    void addSubfield(final CVCObject field) throws ConstructionException {
+	// We want to see the bit length of the modulus when printing as text
+	if (field instanceof ByteField && field.getTag() == CVCTagEnum.MODULUS) {
+	    ((ByteField) field).setShowBitLength(true);
+	}
+	super.addSubfield(field);
+    }
+
+    public String getAlgorithm() {
+	return "RSA";
+    }
+
+    public String getFormat() {
+	return "CVC"; // TODO: This OK?
+    }
+
+    public BigInteger getPublicExponent() {
+	BigInteger result = publicExponent;
+	if (result == null) {
+	    result = new BigInteger(1, getData(CVCTagEnum.EXPONENT));
+	    publicExponent = result;
+	}
+	return result;
+    }
+
+    public BigInteger getModulus() {
+	BigInteger result = modulus;
+	if (result == null) {
+	    result = new BigInteger(1, getData(CVCTagEnum.MODULUS));
+	    modulus = result;
+	}
+	return result;
+    }
+
+    @Override
+    String getKeyAlgorithm() {
+	return "RSA";
+    }
+
+    @Override
+    KeySpec getKeySpec() {
+	return new RSAPublicKeySpec(getModulus(), getPublicExponent());
+    }
+
+    @Override
+    AsymmetricKeyParameter createKeyParameters() {
+	return new RSAKeyParameters(false, getModulus(), getPublicExponent());
+    }
+
+    @Override
+    void clearCachedValues() {
+	modulus = null;
+	publicExponent = null;
+	super.clearCachedValues();
+    }
+
+    private byte[] getData(CVCTagEnum tag) {
+	try {
+	    return ((ByteField) getSubfield(tag)).getEncoded();
+	} catch (NoSuchFieldException e) {
+	    // This object has not been created correctly?
+	    throw new IllegalStateException(e);
+	}
+    }
+
+}
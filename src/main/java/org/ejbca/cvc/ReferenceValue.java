@@ -0,0 +1,178 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable value of a {@link ReferenceField}, i e the concatenation of
+ * country, mnemonic and sequence as ISO-8859-1 bytes.
+ * <p>
+ * Values are compared and hashed on their bytes, so they can be used as keys
+ * of issuer maps without creating Strings. The Strings are created on demand
+ * and the concatenated one is cached. Since the values have no parent, one
+ * instance can be shared by many fields, see {@link #intern(byte[])}.
+ */
+final class ReferenceValue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+    // Country has always length 2, sequence has always length 5
+    private static final int COUNTRY_LENGTH = 2;
+    private static final int SEQUENCE_LENGTH = 5;
+
+    // Size of the intern pool (a power of two) and the number of slots tried
+    // for a value. The pool is never cleared, when the slots of a value are
+    // taken it is not interned.
+    private static final int POOL_SIZE = 4096;
+    private static final int POOL_PROBES = 8;
+    private static final AtomicReferenceArray<ReferenceValue> pool = new AtomicReferenceArray<ReferenceValue>(
+	    POOL_SIZE);
+
+    private final byte[] bytes;
+    private final int hash;
+    private transient volatile String concatenated;
+
+    // Takes ownership of 'bytes'
+    private ReferenceValue(byte[] bytes, int hash) {
+	this.bytes = bytes;
+	this.hash = hash;
+    }
+
+    /**
+     * Creates a value from a copy of 'data'
+     * 
+     * @param data
+     * @return
+     */
+    static ReferenceValue of(byte[] data) {
+	checkLength(data);
+	return new ReferenceValue(data.clone(), hash(data));
+    }
+
+    /**
+     * Creates a value from the concatenated reference, e g for looking up a
+     * value in a map. The reference is not validated.
+     * 
+     * @param concatenated
+     * @return
+     */
+    static ReferenceValue of(String concatenated) {
+	byte[] data = concatenated.getBytes(CHARSET);
+	ReferenceValue result = new ReferenceValue(data, hash(data));
+	result.concatenated = concatenated;
+	return result;
+    }
+
+    /**
+     * Returns the shared value equal to 'data', which is created from a copy of
+     * 'data' if there is none yet. References of CAs occur in many certificates,
+     * the fields of all these certificates share the same value then. Finding a
+     * value doesn't create any objects.
+     * 
+     * @param data
+     * @return
+     */
+    static ReferenceValue intern(byte[] data) {
+	checkLength(data);
+	int hash = hash(data);
+	int start = hash ^ (hash >>> 16);
+	for (int i = 0; i < POOL_PROBES; i++) {
+	    int slot = (start + i) & (POOL_SIZE - 1);
+	    ReferenceValue value = pool.get(slot);
+	    if (value == null) {
+		ReferenceValue created = new ReferenceValue(data.clone(), hash);
+		if (pool.compareAndSet(slot, null, created)) {
+		    return created;
+		}
+		// Taken by another thread in between
+		value = pool.get(slot);
+	    }
+	    if (value.matches(data, hash)) {
+		return value;
+	    }
+	}
+	return new ReferenceValue(data.clone(), hash);
+    }
+
+    /**
+     * Returns the bytes, which must not be modified
+     * 
+     * @return
+     */
+    byte[] getBytes() {
+	return bytes;
+    }
+
+    String getConcatenated() {
+	String result = concatenated;
+	if (result == null) {
+	    result = new String(bytes, CHARSET);
+	    concatenated = result;
+	}
+	return result;
+    }
+
+    String getCountry() {
+	return getConcatenated().substring(0, COUNTRY_LENGTH);
+    }
+
+    String getMnemonic() {
+	return getConcatenated().substring(COUNTRY_LENGTH, bytes.length - SEQUENCE_LENGTH);
+    }
+
+    String getSequence() {
+	return getConcatenated().substring(bytes.length - SEQUENCE_LENGTH);
+    }
+
+    @Override
+    public int hashCode() {
+	return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+	if (this == other) {
+	    return true;
+	}
+	if (!(other instanceof ReferenceValue)) {
+	    return false;
+	}
+	ReferenceValue value = (ReferenceValue) other;
+	return matches(value.bytes, value.hash);
+    }
+
+    @Override
+    public String toString() {
+	return getConcatenated();
+    }
+
+    private boolean matches(byte[] data, int dataHash) {
+	return hash == dataHash && Arrays.equals(bytes, data);
+    }
+
+    private static void checkLength(byte[] data) {
+	if (data.length < COUNTRY_LENGTH + SEQUENCE_LENGTH) {
+	    throw new IllegalArgumentException("Reference must have at least length 7, was " + data.length);
+	}
+    }
+
+    private static int hash(byte[] data) {
+	return Arrays.hashCode(data);
+    }
+}
@@ -0,0 +1,112 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The allowed subfields of a type of sequence, compiled into tables so that
+ * neither adding nor decoding a subfield needs to search.
+ * <p>
+ * Each subfield has a slot, its position in the encoding order. The slot of a
+ * tag is looked up by the ordinal of the tag, and the tag of a decoded field by
+ * the id of its value. The latter resolves tags with the same value: 0x82 is
+ * EXPONENT in an RSA key and COEFFICIENT_A in an EC key.
+ * <p>
+ * Each subclass of AbstractSequence compiles its schema once. Instances are
+ * immutable.
+ */
+final class SequenceSchema {
+
+    private final CVCTagEnum[] fields;
+    private final List<CVCTagEnum> fieldList;
+    // Slot by tag ordinal, -1 if the tag is not allowed
+    private final int[] slots;
+    // Allowed tag by value id
+    private final CVCTagEnum[] tags;
+
+    /**
+     * Compiles the allowed subfields returned by
+     * AbstractSequence.getAllowedFields()
+     * 
+     * @param fields
+     *            allowed subfields in the same order as they appear when
+     *            DER-encoded
+     */
+    SequenceSchema(CVCTagEnum[] fields) {
+	this.fields = fields.clone();
+	this.fieldList = Collections.unmodifiableList(Arrays.asList(this.fields));
+	this.slots = new int[CVCTagEnum.values().length];
+	Arrays.fill(slots, -1);
+	this.tags = new CVCTagEnum[CVCTagEnum.VALUE_COUNT];
+	for (int slot = 0; slot < this.fields.length; slot++) {
+	    CVCTagEnum tag = this.fields[slot];
+	    slots[tag.ordinal()] = slot;
+	    // If two allowed tags have the same value the first one is decoded
+	    if (tags[tag.getValueId()] == null) {
+		tags[tag.getValueId()] = tag;
+	    }
+	}
+    }
+
+    /**
+     * Returns the number of allowed subfields
+     * 
+     * @return
+     */
+    int size() {
+	return fields.length;
+    }
+
+    /**
+     * Returns the allowed subfield in 'slot'
+     * 
+     * @param slot
+     * @return
+     */
+    CVCTagEnum getField(int slot) {
+	return fields[slot];
+    }
+
+    /**
+     * Returns the allowed subfields in encoding order
+     * 
+     * @return
+     */
+    List<CVCTagEnum> getFields() {
+	return fieldList;
+    }
+
+    /**
+     * Returns the slot of 'tag'
+     * 
+     * @param tag
+     * @return the slot or -1 if the tag is not allowed
+     */
+    int getSlot(CVCTagEnum tag) {
+	return slots[tag.ordinal()];
+    }
+
+    /**
+     * Returns the allowed subfield with the tag value 'tagValue'
+     * 
+     * @param tagValue
+     * @return the tag or null if no allowed subfield has the value
+     */
+    CVCTagEnum resolve(int tagValue) {
+	CVCTagEnum tag = CVCTagEnum.fromValue(tagValue);
+	return tag == null ? null : tags[tag.getValueId()];
+    }
+}
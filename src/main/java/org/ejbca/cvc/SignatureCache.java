@@ -0,0 +1,182 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Provider;
+import java.security.Security;
+import java.security.Signature;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-thread cache of Signature instances. Signature.getInstance looks up the
+ * provider and creates a new SPI on every call, so threads verifying many
+ * certificates reuse their instances instead. A cached instance must be
+ * initialized (initVerify/initSign) before each use.
+ * <p>
+ * Instances are cached by algorithm and provider name. An instance requested
+ * by provider name is checked every {@link #CHECK_INTERVAL} uses to still
+ * belong to the installed provider of that name, so a provider that is removed
+ * or replaced is dropped soon after. An instance requested by provider
+ * instance is replaced when another instance of the same name is given, so at
+ * most one provider instance per name is referenced. Each thread keeps at most
+ * {@link #MAX_SIZE} instances, the least recently used is dropped.
+ * <p>
+ * An instance used for signing keeps its private key until it is initialized
+ * again or dropped, so the key stays reachable from the thread that signed.
+ */
+final class SignatureCache {
+
+    /** Maximum number of instances per thread */
+    static final int MAX_SIZE = 32;
+
+    /** Number of uses between checks that the provider is still installed */
+    static final int CHECK_INTERVAL = 64;
+
+    private static final ThreadLocal<Signatures> SIGNATURES = new ThreadLocal<Signatures>() {
+	@Override
+	protected Signatures initialValue() {
+	    return new Signatures();
+	}
+    };
+
+    // Only static methods...
+    private SignatureCache() {
+    }
+
+    /**
+     * Returns the Signature instance of the calling thread for 'algorithm' and
+     * 'provider', creating it on first use. If 'provider' is null the preferred
+     * provider of the algorithm is used.
+     * 
+     * @param algorithm
+     * @param provider
+     * @return
+     */
+    static Signature getInstance(String algorithm, String provider)
+	    throws NoSuchAlgorithmException, NoSuchProviderException {
+	Signatures signatures = SIGNATURES.get();
+	Cached entry = signatures.get(signatures.lookup.set(algorithm, provider, false));
+	if (entry == null) {
+	    entry = new Cached(newInstance(algorithm, provider));
+	    signatures.put(new Key().set(algorithm, provider, false), entry);
+	} else if (--entry.uses == 0) {
+	    entry.uses = CHECK_INTERVAL;
+	    Provider cached = entry.signature.getProvider();
+	    if (Security.getProvider(cached.getName()) != cached) {
+		entry.signature = newInstance(algorithm, provider);
+	    }
+	}
+	return entry.signature;
+    }
+
+    /**
+     * Returns the Signature instance of the calling thread for 'algorithm' and
+     * 'provider', creating it on first use. An instance of another provider
+     * with the same name is replaced.
+     * 
+     * @param algorithm
+     * @param provider
+     * @return
+     */
+    static Signature getInstance(String algorithm, Provider provider) throws NoSuchAlgorithmException {
+	if (provider == null) {
+	    throw new IllegalArgumentException("provider is null");
+	}
+	Signatures signatures = SIGNATURES.get();
+	Cached entry = signatures.get(signatures.lookup.set(algorithm, provider.getName(), true));
+	if (entry == null) {
+	    entry = new Cached(Signature.getInstance(algorithm, provider));
+	    signatures.put(new Key().set(algorithm, provider.getName(), true), entry);
+	} else if (entry.signature.getProvider() != provider) {
+	    entry.signature = Signature.getInstance(algorithm, provider);
+	}
+	return entry.signature;
+    }
+
+    /**
+     * Returns the number of instances cached by the calling thread
+     * 
+     * @return
+     */
+    static int size() {
+	return SIGNATURES.get().size();
+    }
+
+    // Creates an instance of the named provider, or of the preferred one if null
+    private static Signature newInstance(String algorithm, String provider)
+	    throws NoSuchAlgorithmException, NoSuchProviderException {
+	return provider == null ? Signature.getInstance(algorithm) : Signature.getInstance(algorithm, provider);
+    }
+
+    // The instances of one thread, least recently used first
+    private static final class Signatures extends LinkedHashMap<Key, Cached> {
+	private static final long serialVersionUID = 1L;
+
+	// Reused for lookups, so a hit allocates nothing
+	final Key lookup = new Key();
+
+	Signatures() {
+	    super(16, 0.75f, true);
+	}
+
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+	    return size() > MAX_SIZE;
+	}
+    }
+
+    // Algorithm, provider name and whether the instance was requested by provider instance
+    private static final class Key {
+	private String algorithm;
+	private String provider;
+	private boolean byInstance;
+	private int hash;
+
+	Key set(String algorithm, String provider, boolean byInstance) {
+	    this.algorithm = algorithm;
+	    this.provider = provider;
+	    this.byInstance = byInstance;
+	    this.hash = (algorithm.hashCode() * 31 + (provider == null ? 0 : provider.hashCode())) * 31
+		    + (byInstance ? 1 : 0);
+	    return this;
+	}
+
+	@Override
+	public int hashCode() {
+	    return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof Key)) {
+		return false;
+	    }
+	    Key other = (Key) obj;
+	    return hash == other.hash && byInstance == other.byInstance && algorithm.equals(other.algorithm)
+		    && (provider == null ? other.provider == null : provider.equals(other.provider));
+	}
+    }
+
+    private static final class Cached {
+	Signature signature;
+	// Uses left until the provider is checked again
+	int uses = CHECK_INTERVAL;
+
+	Cached(Signature signature) {
+	    this.signature = signature;
+	}
+    }
+}
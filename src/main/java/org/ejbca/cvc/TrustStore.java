@@ -0,0 +1,286 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.ByteBuffer;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Thread-safe in-memory store of trusted certificates.
+ * <p>
+ * Certificates are indexed by their 'Certificate Holder Reference', by their
+ * 'Certificate Authority Reference' and by the fingerprint of their public
+ * key, so the issuer of a certificate is found in constant time. References
+ * are compared on their encoded bytes, like
+ * {@link ReferenceField#getConcatenated()} as ISO-8859-1.
+ * <p>
+ * The indexes are immutable snapshots. Reads use the current snapshot without
+ * locking, writes copy the indexes and replace the snapshot. Adding many
+ * certificates with {@link #addAll(Collection)} copies the indexes once.
+ */
+public final class TrustStore {
+
+    private volatile Snapshot snapshot = new Snapshot();
+
+    /**
+     * Adds 'certificate'. A certificate with the same holder reference is
+     * replaced.
+     * 
+     * @param certificate
+     * @throws NoSuchFieldException
+     *             if a required field of the certificate is missing
+     */
+    public void add(CVCertificate certificate) throws NoSuchFieldException {
+	addAll(Collections.singleton(certificate));
+    }
+
+    /**
+     * Adds 'certificates'. Certificates with the same holder reference as one of
+     * them are replaced.
+     * 
+     * @param certificates
+     * @throws NoSuchFieldException
+     *             if a required field of a certificate is missing. No
+     *             certificate is added then.
+     */
+    public void addAll(Collection<? extends CVCertificate> certificates) throws NoSuchFieldException {
+	List<Entry> entries = new ArrayList<Entry>(certificates.size());
+	for (CVCertificate certificate : certificates) {
+	    entries.add(new Entry(certificate));
+	}
+	synchronized (this) {
+	    Snapshot updated = new Snapshot(snapshot);
+	    for (Entry entry : entries) {
+		updated.remove(entry.holderReference);
+		updated.add(entry);
+	    }
+	    snapshot = updated.publish();
+	}
+    }
+
+    /**
+     * Removes the certificate with the given holder reference
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return the removed certificate or null if not found
+     */
+    public synchronized CVCertificate remove(String holderReference) {
+	ReferenceValue key = ReferenceValue.of(holderReference);
+	if (!snapshot.byHolder.containsKey(key)) {
+	    return null;
+	}
+	Snapshot updated = new Snapshot(snapshot);
+	Entry removed = updated.remove(key);
+	snapshot = updated.publish();
+	return removed.certificate;
+    }
+
+    /**
+     * Removes all certificates
+     */
+    public synchronized void clear() {
+	snapshot = new Snapshot();
+    }
+
+    /**
+     * Returns the certificate with the given holder reference
+     * 
+     * @param holderReference
+     *            the concatenated holder reference
+     * @return the certificate or null if not found
+     */
+    public CVCertificate getByHolderReference(String holderReference) {
+	return getByHolderReference(ReferenceValue.of(holderReference));
+    }
+
+    /**
+     * Returns the issuer of 'certificate', i e the certificate whose holder
+     * reference equals the CA reference of 'certificate'
+     * 
+     * @param certificate
+     * @return the issuer or null if not found
+     * @throws NoSuchFieldException
+     */
+    public CVCertificate getIssuer(CVCertificate certificate) throws NoSuchFieldException {
+	CAReferenceField authorityReference = certificate.getCertificateBody().getAuthorityReference();
+	return authorityReference == null ? null : getByHolderReference(authorityReference.getValue());
+    }
+
+    private CVCertificate getByHolderReference(ReferenceValue holderReference) {
+	Entry entry = snapshot.byHolder.get(holderReference);
+	return entry == null ? null : entry.certificate;
+    }
+
+    /**
+     * Returns the certificates issued by the given CA
+     * 
+     * @param authorityReference
+     *            the concatenated CA reference
+     * @return an unmodifiable list, empty if no certificate is found
+     */
+    public List<CVCertificate> getByAuthorityReference(String authorityReference) {
+	List<CVCertificate> result = snapshot.byAuthority.get(ReferenceValue.of(authorityReference));
+	return result == null ? Collections.<CVCertificate> emptyList() : result;
+    }
+
+    /**
+     * Returns a certificate containing 'key', the most recently added one if
+     * there are several. The key may be a CVCPublicKey or a JCA key, domain
+     * parameters are not compared.
+     * 
+     * @param key
+     * @return the certificate or null if not found
+     */
+    public CVCertificate getByPublicKey(PublicKey key) {
+	List<CVCertificate> result = snapshot.byKey.get(ByteBuffer.wrap(CVCPublicKey.getFingerprint(key)));
+	return result == null ? null : result.get(result.size() - 1);
+    }
+
+    /**
+     * Returns all certificates
+     * 
+     * @return an unmodifiable snapshot of the certificates
+     */
+    public Collection<CVCertificate> getAll() {
+	Collection<Entry> entries = snapshot.byHolder.values();
+	List<CVCertificate> result = new ArrayList<CVCertificate>(entries.size());
+	for (Entry entry : entries) {
+	    result.add(entry.certificate);
+	}
+	return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the number of certificates
+     * 
+     * @return
+     */
+    public int size() {
+	return snapshot.byHolder.size();
+    }
+
+    /**
+     * A certificate with its index keys
+     */
+    private static final class Entry {
+	final CVCertificate certificate;
+	final ReferenceValue holderReference;
+	final ReferenceValue authorityReference;
+	final ByteBuffer fingerprint;
+
+	Entry(CVCertificate certificate) throws NoSuchFieldException {
+	    CVCertificateBody body = certificate.getCertificateBody();
+	    CAReferenceField car = body.getAuthorityReference();
+	    this.certificate = certificate;
+	    this.holderReference = body.getHolderReference().getValue();
+	    this.authorityReference = car == null ? null : car.getValue();
+	    this.fingerprint = ByteBuffer.wrap(body.getPublicKey().getFingerprint());
+	}
+    }
+
+    /**
+     * The indexes. A snapshot is only modified before it is published.
+     */
+    private static final class Snapshot {
+	final Map<ReferenceValue, Entry> byHolder;
+	final Map<ReferenceValue, List<CVCertificate>> byAuthority;
+	// Several certificates may contain the same key, in the order they were
+	// added
+	final Map<ByteBuffer, List<CVCertificate>> byKey;
+	// Keys whose lists were copied for this snapshot, null once published
+	private Set<ReferenceValue> copiedAuthorities;
+	private Set<ByteBuffer> copiedKeys;
+
+	Snapshot() {
+	    byHolder = new HashMap<ReferenceValue, Entry>();
+	    byAuthority = new HashMap<ReferenceValue, List<CVCertificate>>();
+	    byKey = new HashMap<ByteBuffer, List<CVCertificate>>();
+	}
+
+	// Copies the maps, the lists are copied when modified
+	Snapshot(Snapshot other) {
+	    byHolder = new HashMap<ReferenceValue, Entry>(other.byHolder);
+	    byAuthority = new HashMap<ReferenceValue, List<CVCertificate>>(other.byAuthority);
+	    byKey = new HashMap<ByteBuffer, List<CVCertificate>>(other.byKey);
+	    copiedAuthorities = new HashSet<ReferenceValue>();
+	    copiedKeys = new HashSet<ByteBuffer>();
+	}
+
+	void add(Entry entry) {
+	    byHolder.put(entry.holderReference, entry);
+	    getList(byKey, copiedKeys, entry.fingerprint).add(entry.certificate);
+	    if (entry.authorityReference != null) {
+		getList(byAuthority, copiedAuthorities, entry.authorityReference).add(entry.certificate);
+	    }
+	}
+
+	Entry remove(ReferenceValue holderReference) {
+	    Entry entry = byHolder.remove(holderReference);
+	    if (entry == null) {
+		return null;
+	    }
+	    removeFromList(byKey, copiedKeys, entry.fingerprint, entry.certificate);
+	    if (entry.authorityReference != null) {
+		removeFromList(byAuthority, copiedAuthorities, entry.authorityReference, entry.certificate);
+	    }
+	    return entry;
+	}
+
+	// Wraps the copied lists, must be called before publishing
+	Snapshot publish() {
+	    wrap(byAuthority, copiedAuthorities);
+	    wrap(byKey, copiedKeys);
+	    copiedAuthorities = null;
+	    copiedKeys = null;
+	    return this;
+	}
+
+	private static <K> void wrap(Map<K, List<CVCertificate>> map, Set<K> copied) {
+	    for (K key : copied) {
+		List<CVCertificate> list = map.get(key);
+		if (list != null) {
+		    map.put(key, Collections.unmodifiableList(list));
+		}
+	    }
+	}
+
+	private static <K> void removeFromList(Map<K, List<CVCertificate>> map, Set<K> copied, K key,
+		CVCertificate certificate) {
+	    List<CVCertificate> list = getList(map, copied, key);
+	    list.remove(certificate);
+	    if (list.isEmpty()) {
+		map.remove(key);
+	    }
+	}
+
+	// Returns a modifiable list of 'map', copying the list of the previous
+	// snapshot once
+	private static <K> List<CVCertificate> getList(Map<K, List<CVCertificate>> map, Set<K> copied, K key) {
+	    List<CVCertificate> list = map.get(key);
+	    if (copied.add(key) || list == null) {
+		list = list == null ? new ArrayList<CVCertificate>() : new ArrayList<CVCertificate>(list);
+		map.put(key, list);
+	    }
+	    return list;
+	}
+    }
+}
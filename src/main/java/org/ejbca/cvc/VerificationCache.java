@@ -0,0 +1,248 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+
+/**
+ * Cache of successful signature verifications.
+ * <p>
+ * An entry is keyed by a SHA-256 hash over the DER-encoding of the certificate
+ * and the fingerprint of the issuer key, so a cached result is only returned
+ * for exactly the same certificate and key. Entries expire after a
+ * configurable time to live, and at the latest when the 'Expiration Date' of
+ * the certificate has passed. Failed verifications are not cached.
+ * <p>
+ * The cache is split into segments with their own lock, each keeping its
+ * entries in least recently used order. The maximum number of entries is
+ * divided between the segments, small caches have fewer segments. Instances
+ * are thread-safe.
+ */
+public final class VerificationCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final long timeToLive;
+
+    /**
+     * Creates a cache
+     * 
+     * @param maxEntries
+     *            maximum number of entries
+     * @param timeToLive
+     *            time in milliseconds after which an entry expires
+     */
+    public VerificationCache(int maxEntries, long timeToLive) {
+	if (maxEntries < 0) {
+	    throw new IllegalArgumentException("Negative number of entries: " + maxEntries);
+	}
+	if (timeToLive <= 0) {
+	    throw new IllegalArgumentException("Time to live must be positive: " + timeToLive);
+	}
+	// A power of two, but not more segments than entries
+	int count = Integer.highestOneBit(Math.max(1, Math.min(SEGMENTS, maxEntries)));
+	segments = new Segment[count];
+	for (int i = 0; i < count; i++) {
+	    segments[i] = new Segment(maxEntries / count + (i < maxEntries % count ? 1 : 0));
+	}
+	this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Verifies the signature of 'certificate' unless the same certificate was
+     * verified with the same key before
+     * 
+     * @param certificate
+     * @param issuerKey
+     * @param provider
+     *            see {@link CVCertificate#verify(PublicKey, String)}
+     */
+    public void verify(CVCertificate certificate, PublicKey issuerKey, String provider) throws CertificateException,
+	    NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException, SignatureException {
+	verify(certificate, issuerKey, provider, null, false);
+    }
+
+    /**
+     * Same as {@link #verify(CVCertificate, PublicKey, String)} but verifies
+     * with {@link CVCertificate#verifyLightweight(PublicKey, HotKeyRegistry)}
+     * 
+     * @param certificate
+     * @param issuerKey
+     * @param hotKeys
+     *            registry of keys with precomputed tables, or null
+     */
+    public void verifyLightweight(CVCertificate certificate, PublicKey issuerKey, HotKeyRegistry hotKeys)
+	    throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+	try {
+	    verify(certificate, issuerKey, null, hotKeys, true);
+	} catch (NoSuchProviderException e) {
+	    // No provider is used
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    private void verify(CVCertificate certificate, PublicKey issuerKey, String provider, HotKeyRegistry hotKeys,
+	    boolean lightweight) throws CertificateException, NoSuchAlgorithmException, NoSuchProviderException,
+	    InvalidKeyException, SignatureException {
+	long now = System.currentTimeMillis();
+	Key key = createKey(certificate, issuerKey);
+	Segment segment = segmentFor(key);
+	if (segment.contains(key, now)) {
+	    return;
+	}
+	if (lightweight) {
+	    certificate.verifyLightweight(issuerKey, hotKeys);
+	} else {
+	    certificate.verify(issuerKey, provider);
+	}
+	long expiresAt = now + timeToLive;
+	try {
+	    expiresAt = Math.min(expiresAt, certificate.getCertificateBody().getValidToTime());
+	} catch (NoSuchFieldException e) {
+	    // A request, no expiration date
+	}
+	if (expiresAt > now) {
+	    segment.put(key, expiresAt);
+	}
+    }
+
+    /**
+     * Returns true if a valid verification of 'certificate' with 'issuerKey' is
+     * cached
+     * 
+     * @param certificate
+     * @param issuerKey
+     * @return
+     */
+    public boolean isVerified(CVCertificate certificate, PublicKey issuerKey) {
+	Key key = createKey(certificate, issuerKey);
+	return segmentFor(key).contains(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the number of entries, including expired ones not yet removed
+     * 
+     * @return
+     */
+    public int size() {
+	int size = 0;
+	for (Segment segment : segments) {
+	    size += segment.size();
+	}
+	return size;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+	for (Segment segment : segments) {
+	    segment.clear();
+	}
+    }
+
+    private Segment segmentFor(Key key) {
+	return segments[key.hashCode() & (segments.length - 1)];
+    }
+
+    // Hashes the encoded certificate and the fingerprint of the key
+    private static Key createKey(CVCertificate certificate, PublicKey issuerKey) {
+	Digest digest = new SHA256Digest();
+	ByteBuffer encoded = certificate.getDEREncodedBuffer();
+	digest.update(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+	byte[] fingerprint = CVCPublicKey.getFingerprint(issuerKey);
+	digest.update(fingerprint, 0, fingerprint.length);
+	byte[] hash = new byte[digest.getDigestSize()];
+	digest.doFinal(hash, 0);
+	return new Key(hash);
+    }
+
+    /**
+     * Hash identifying a certificate and an issuer key
+     */
+    private static final class Key {
+	private final byte[] hash;
+	private final int hashCode;
+
+	Key(byte[] hash) {
+	    this.hash = hash;
+	    // The hash is uniformly distributed already
+	    this.hashCode = (hash[0] & 0xff) << 24 | (hash[1] & 0xff) << 16 | (hash[2] & 0xff) << 8 | (hash[3] & 0xff);
+	}
+
+	@Override
+	public int hashCode() {
+	    return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+	    return other instanceof Key && Arrays.equals(hash, ((Key) other).hash);
+	}
+    }
+
+    /**
+     * Entries in least recently used order, mapped to their time of expiry
+     */
+    private static final class Segment {
+	private final LinkedHashMap<Key, Long> entries;
+
+	Segment(final int maxEntries) {
+	    entries = new LinkedHashMap<Key, Long>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+		    return size() > maxEntries;
+		}
+	    };
+	}
+
+	synchronized boolean contains(Key key, long now) {
+	    Long expiresAt = entries.get(key);
+	    if (expiresAt == null) {
+		return false;
+	    }
+	    if (expiresAt.longValue() <= now) {
+		entries.remove(key);
+		return false;
+	    }
+	    return true;
+	}
+
+	synchronized void put(Key key, long expiresAt) {
+	    entries.put(key, Long.valueOf(expiresAt));
+	}
+
+	synchronized int size() {
+	    return entries.size();
+	}
+
+	synchronized void clear() {
+	    entries.clear();
+	}
+    }
+}
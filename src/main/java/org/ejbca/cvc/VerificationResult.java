@@ -0,0 +1,63 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+/**
+ * Outcome of verifying one certificate with {@link BatchVerifier}
+ */
+public final class VerificationResult {
+
+    private final CVCertificate certificate;
+    private final Exception failure;
+
+    /**
+     * Constructor
+     * 
+     * @param certificate
+     * @param failure
+     *            the reason why verification failed, null if it succeeded
+     */
+    VerificationResult(CVCertificate certificate, Exception failure) {
+	this.certificate = certificate;
+	this.failure = failure;
+    }
+
+    /**
+     * Returns the verified certificate
+     * 
+     * @return
+     */
+    public CVCertificate getCertificate() {
+	return certificate;
+    }
+
+    /**
+     * Returns true if the signature of the certificate is valid
+     * 
+     * @return
+     */
+    public boolean isValid() {
+	return failure == null;
+    }
+
+    /**
+     * Returns the exception the verification failed with, or null if the signature
+     * is valid. A wrong signature is reported as a SignatureException.
+     * 
+     * @return
+     */
+    public Exception getFailure() {
+	return failure;
+    }
+
+}
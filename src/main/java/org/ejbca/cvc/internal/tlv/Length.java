@@ -44,6 +44,28 @@ public class Length {
      * @return the number of bytes, this length will be encoded into.
      */
     public int size() {
+	return sizeOf(length);
+    }
+
+    /**
+     * Encode this length onto the provided {@link ByteBuffer}.
+     * 
+     * @param target
+     *            the {@link ByteBuffer} to write the length bytes to
+     */
+    public void encodeTo(ByteBuffer target) {
+	encode(length, target);
+    }
+
+    /**
+     * Retrieve the number of bytes a content length will be encoded into, without
+     * creating a {@link Length} instance.
+     * 
+     * @param length
+     *            the content length, must be positive.
+     * @return the number of bytes the length will be encoded into.
+     */
+    public static int sizeOf(int length) {
 	if (length <= 0x7F)
 	    return 1;
 	else if (length <= 0xFF)
@@ -57,17 +79,20 @@ public class Length {
     }
 
     /**
-     * Encode this length onto the provided {@link ByteBuffer}.
+     * Encode a content length onto the provided {@link ByteBuffer}, without
+     * creating a {@link Length} instance.
      * 
+     * @param length
+     *            the content length, must be positive.
      * @param target
      *            the {@link ByteBuffer} to write the length bytes to
      */
-    public void encodeTo(ByteBuffer target) {
+    public static void encode(int length, ByteBuffer target) {
 	if (length <= 0x7F) {
 	    target.put((byte) length);
 	    return;
 	} else {
-	    int size = size() - 1;
+	    int size = sizeOf(length) - 1;
 	    target.put((byte) (size | 0x80));
 
 	    for (int i = size - 1; i >= 0; i--) {
@@ -1,105 +1,371 @@
 package org.ejbca.cvc.util;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigInteger;
+import java.security.Key;
 import java.security.SignatureException;
-import java.util.Locale;
-
-import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1InputStream;
-import org.bouncycastle.asn1.ASN1Integer;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.DEROutputStream;
-import org.bouncycastle.asn1.DERSequence;
+import java.security.interfaces.ECKey;
+import java.security.spec.ECParameterSpec;
 
 /**
- * This is directly copied from
- * org.bouncycastle.jce.provider.asymmetric.ec.Signature BC version 1.41b04 was
- * the base of the copy-paste operation.
+ * Converts ECDSA signatures between the X9.62 format (DER-encoded SEQUENCE of
+ * the INTEGERs r and s) used by JCA providers and the CVC format (r || s, both
+ * padded to the length of the curve order).
+ * <p>
+ * The conversion works directly on the bytes. The methods taking an output
+ * array and offset don't allocate anything.
  * 
  * @version $Id: BCECUtil.java 20720 2015-02-19 16:56:59Z mikekushner $
  */
 public final class BCECUtil {
+
+    private static final byte SEQUENCE_TAG = 0x30;
+    private static final byte INTEGER_TAG = 0x02;
+
     /** private constructor this is a static utility class */
     private BCECUtil() {
     }
 
+    /**
+     * Converts an X9.62 signature to a CVC signature. Since the curve order isn't
+     * known here, r and s are padded to the longer of the two values, which gives
+     * a too short signature if both happen to have leading zeros. Use
+     * {@link #convertX962SigToCVC(String, byte[], int)} if the order length is
+     * known.
+     * 
+     * @param algorithmName
+     * @param xsig
+     * @return the CVC signature, or 'xsig' if the algorithm is not ECDSA
+     */
     public static byte[] convertX962SigToCVC(final String algorithmName, final byte[] xsig) throws IOException {
+	return convertX962SigToCVC(algorithmName, xsig, 0);
+    }
+
+    /**
+     * Converts an X9.62 signature to a CVC signature with r and s padded to
+     * 'orderLength' bytes
+     * 
+     * @param algorithmName
+     * @param xsig
+     * @param orderLength
+     *            length of the curve order in bytes, see
+     *            {@link #getOrderLength(Key)}. If 0 the longer of r and s is used.
+     * @return the CVC signature, or 'xsig' if the algorithm is not ECDSA
+     */
+    public static byte[] convertX962SigToCVC(final String algorithmName, final byte[] xsig, final int orderLength)
+	    throws IOException {
 	// Only do this if it's an ECDSA algorithm
-	if (!algorithmName.toUpperCase(Locale.getDefault()).contains("ECDSA")) {
+	if (!isECDSA(algorithmName)) {
 	    return xsig;
 	}
-	// Read r and s from asn.1 encoded x9.62 signature
-	final ASN1InputStream aIn = new ASN1InputStream(xsig);
-	final ASN1Sequence seq;
 	try {
-	    seq = (ASN1Sequence) aIn.readObject();
-	} finally {
-	    aIn.close();
+	    int length = orderLength > 0 ? orderLength : x962ValueLength(xsig, 0, xsig.length);
+	    byte[] res = new byte[length * 2];
+	    convertX962SigToCVC(xsig, 0, xsig.length, length, res, 0);
+	    return res;
+	} catch (SignatureException e) {
+	    throw new IOException(e.getMessage(), e);
 	}
-	final BigInteger r = ((ASN1Integer) seq.getObjectAt(0)).getValue();
-	final BigInteger s = ((ASN1Integer) seq.getObjectAt(1)).getValue();
-
-	// Write r and s to not asn.1 encoded cvc signature
-	final byte[] first = makeUnsigned(r);
-	final byte[] second = makeUnsigned(s);
-	byte[] res;
+    }
 
-	if (first.length > second.length) {
-	    res = new byte[first.length * 2];
-	} else {
-	    res = new byte[second.length * 2];
+    /**
+     * Converts an X9.62 signature in 'xsig' to a CVC signature written to 'out'
+     * 
+     * @param xsig
+     * @param off
+     *            start of the signature in 'xsig'
+     * @param len
+     *            length of the signature in 'xsig'
+     * @param orderLength
+     *            length of the curve order in bytes, r and s are padded to this
+     *            length
+     * @param out
+     *            must have room for 2 * orderLength bytes starting at 'outOff'
+     * @param outOff
+     * @return number of bytes written, i e 2 * orderLength
+     * @throws SignatureException
+     *             if the signature is malformed or r or s is longer than
+     *             'orderLength'
+     */
+    public static int convertX962SigToCVC(final byte[] xsig, final int off, final int len, final int orderLength,
+	    final byte[] out, final int outOff) throws SignatureException {
+	final int end = off + len;
+	int pos = expectTag(xsig, off, end, SEQUENCE_TAG);
+	final int seqLength = readLength(xsig, pos, end);
+	pos += lengthSize(xsig[pos]);
+	if (pos + seqLength != end) {
+	    throw new SignatureException("Invalid length of X9.62 signature");
 	}
+	pos = copyInteger(xsig, pos, end, out, outOff, orderLength);
+	pos = copyInteger(xsig, pos, end, out, outOff + orderLength, orderLength);
+	if (pos != end) {
+	    throw new SignatureException("Unexpected data after X9.62 signature");
+	}
+	return orderLength * 2;
+    }
 
-	System.arraycopy(first, 0, res, res.length / 2 - first.length, first.length);
-	System.arraycopy(second, 0, res, res.length - second.length, second.length);
-
+    /**
+     * Converts an array of X9.62 signatures to CVC signatures
+     * 
+     * @param algorithmName
+     * @param xsigs
+     * @param orderLength
+     *            length of the curve order in bytes
+     * @return
+     */
+    public static byte[][] convertX962SigsToCVC(final String algorithmName, final byte[][] xsigs,
+	    final int orderLength) throws IOException {
+	final byte[][] res = new byte[xsigs.length][];
+	for (int i = 0; i < xsigs.length; i++) {
+	    res[i] = convertX962SigToCVC(algorithmName, xsigs[i], orderLength);
+	}
 	return res;
-
     }
 
+    /**
+     * Converts a CVC signature to an X9.62 signature
+     * 
+     * @param algorithmName
+     * @param xsig
+     * @return the X9.62 signature, or 'xsig' if the algorithm is not ECDSA
+     */
     public static byte[] convertCVCSigToX962(final String algorithmName, final byte[] xsig) throws SignatureException {
 	// Only do this if it's an ECDSA algorithm
-	if (!algorithmName.toUpperCase(Locale.getDefault()).contains("ECDSA")) {
+	if (!isECDSA(algorithmName)) {
 	    return xsig;
 	}
-	// Read r and s from non asn.1 encoded CVC signature
-	final byte[] first = new byte[xsig.length / 2];
-	final byte[] second = new byte[xsig.length / 2];
+	final byte[] res = new byte[getX962Length(xsig, 0, xsig.length)];
+	convertCVCSigToX962(xsig, 0, xsig.length, res, 0);
+	return res;
+    }
 
-	System.arraycopy(xsig, 0, first, 0, first.length);
-	System.arraycopy(xsig, first.length, second, 0, second.length);
+    /**
+     * Converts a CVC signature in 'sig' to an X9.62 signature written to 'out'
+     * 
+     * @param sig
+     * @param off
+     *            start of the signature in 'sig'
+     * @param len
+     *            length of the signature in 'sig', must be even
+     * @param out
+     *            must have room for {@link #getX962Length(byte[], int, int)} bytes
+     *            starting at 'outOff'
+     * @param outOff
+     * @return number of bytes written
+     * @throws SignatureException
+     *             if the length of the signature is odd or zero
+     */
+    public static int convertCVCSigToX962(final byte[] sig, final int off, final int len, final byte[] out,
+	    final int outOff) throws SignatureException {
+	final int half = checkCVCLength(len);
+	final int rLength = integerLength(sig, off, half);
+	final int sLength = integerLength(sig, off + half, half);
+	final int seqLength = 1 + lengthSize(rLength) + rLength + 1 + lengthSize(sLength) + sLength;
 
-	final BigInteger r = new BigInteger(1, first);
-	final BigInteger s = new BigInteger(1, second);
+	int pos = outOff;
+	out[pos++] = SEQUENCE_TAG;
+	pos = writeLength(seqLength, out, pos);
+	pos = writeInteger(sig, off, half, rLength, out, pos);
+	pos = writeInteger(sig, off + half, half, sLength, out, pos);
+	return pos - outOff;
+    }
 
-	// Write r and s to asn.1 encoded X9.62 signature
-	final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
-	final DEROutputStream dOut = new DEROutputStream(bOut);
-	final ASN1EncodableVector v = new ASN1EncodableVector();
+    /**
+     * Converts an array of CVC signatures to X9.62 signatures
+     * 
+     * @param algorithmName
+     * @param sigs
+     * @return
+     */
+    public static byte[][] convertCVCSigsToX962(final String algorithmName, final byte[][] sigs)
+	    throws SignatureException {
+	final byte[][] res = new byte[sigs.length][];
+	for (int i = 0; i < sigs.length; i++) {
+	    res[i] = convertCVCSigToX962(algorithmName, sigs[i]);
+	}
+	return res;
+    }
 
-	v.add(new ASN1Integer(r));
-	v.add(new ASN1Integer(s));
+    /**
+     * Returns the length of the X9.62 encoding of a CVC signature
+     * 
+     * @param sig
+     * @param off
+     * @param len
+     * @return
+     * @throws SignatureException
+     *             if the length of the signature is odd or zero
+     */
+    public static int getX962Length(final byte[] sig, final int off, final int len) throws SignatureException {
+	final int half = checkCVCLength(len);
+	final int rLength = integerLength(sig, off, half);
+	final int sLength = integerLength(sig, off + half, half);
+	final int seqLength = 1 + lengthSize(rLength) + rLength + 1 + lengthSize(sLength) + sLength;
+	return 1 + lengthSize(seqLength) + seqLength;
+    }
 
-	try {
-	    dOut.writeObject(new DERSequence(v));
-	} catch (IOException e) {
-	    throw new SignatureException(e);
+    /**
+     * Returns the length of the curve order in bytes, which is the length of r
+     * and s in a CVC signature made with 'key'
+     * 
+     * @param key
+     *            a public or private EC key
+     * @return the length, or 0 if 'key' is not an EC key with domain parameters
+     */
+    public static int getOrderLength(final Key key) {
+	if (key instanceof ECKey) {
+	    final ECParameterSpec params = ((ECKey) key).getParams();
+	    if (params != null) {
+		return (params.getOrder().bitLength() + 7) >> 3;
+	    }
 	}
+	return 0;
+    }
 
-	return bOut.toByteArray();
+    // Same as algorithmName.toUpperCase().contains("ECDSA"), without creating a
+    // String
+    private static boolean isECDSA(final String algorithmName) {
+	for (int i = algorithmName.length() - 5; i >= 0; i--) {
+	    if (algorithmName.regionMatches(true, i, "ECDSA", 0, 5)) {
+		return true;
+	    }
+	}
+	return false;
     }
 
-    private static byte[] makeUnsigned(final BigInteger val) {
-	byte[] res = val.toByteArray();
+    private static int checkCVCLength(final int len) throws SignatureException {
+	if (len == 0 || (len & 1) != 0) {
+	    throw new SignatureException("Invalid length of CVC signature: " + len);
+	}
+	return len / 2;
+    }
 
-	if (res[0] == 0) {
-	    final byte[] tmp = new byte[res.length - 1];
-	    System.arraycopy(res, 1, tmp, 0, tmp.length);
-	    res = tmp;
+    // Returns the length of the longer of r and s without leading zeros
+    private static int x962ValueLength(final byte[] xsig, final int off, final int len) throws SignatureException {
+	final int end = off + len;
+	int pos = expectTag(xsig, off, end, SEQUENCE_TAG);
+	readLength(xsig, pos, end);
+	pos += lengthSize(xsig[pos]);
+	int max = 0;
+	for (int i = 0; i < 2; i++) {
+	    pos = expectTag(xsig, pos, end, INTEGER_TAG);
+	    final int length = readLength(xsig, pos, end);
+	    pos += lengthSize(xsig[pos]);
+	    if (length == 0 || pos + length > end) {
+		throw new SignatureException("Invalid X9.62 signature, invalid INTEGER length");
+	    }
+	    int start = pos;
+	    while (start < pos + length - 1 && xsig[start] == 0) {
+		start++;
+	    }
+	    max = Math.max(max, pos + length - start);
+	    pos += length;
 	}
-	return res;
+	return max;
+    }
+
+    // Checks the tag at 'pos' and returns the position after it
+    private static int expectTag(final byte[] data, final int pos, final int end, final byte tag)
+	    throws SignatureException {
+	if (pos >= end || data[pos] != tag) {
+	    throw new SignatureException("Invalid X9.62 signature, expected tag " + tag);
+	}
+	return pos + 1;
+    }
+
+    // Reads a DER length of at most two bytes at 'pos'
+    private static int readLength(final byte[] data, final int pos, final int end) throws SignatureException {
+	if (pos >= end) {
+	    throw new SignatureException("Invalid X9.62 signature, length missing");
+	}
+	final int first = data[pos] & 0xFF;
+	if (first < 0x80) {
+	    return first;
+	} else if (first == 0x81 && pos + 1 < end) {
+	    return data[pos + 1] & 0xFF;
+	} else if (first == 0x82 && pos + 2 < end) {
+	    return ((data[pos + 1] & 0xFF) << 8) | (data[pos + 2] & 0xFF);
+	}
+	throw new SignatureException("Invalid X9.62 signature, unsupported length");
+    }
+
+    // Number of bytes of a DER length starting with 'first'
+    private static int lengthSize(final byte first) {
+	final int value = first & 0xFF;
+	return value < 0x80 ? 1 : 1 + (value & 0x7F);
+    }
+
+    // Number of bytes of a DER length with value 'length'
+    private static int lengthSize(final int length) {
+	return length < 0x80 ? 1 : length <= 0xFF ? 2 : 3;
+    }
+
+    private static int writeLength(final int length, final byte[] out, int pos) {
+	if (length >= 0x100) {
+	    out[pos++] = (byte) 0x82;
+	    out[pos++] = (byte) (length >> 8);
+	} else if (length >= 0x80) {
+	    out[pos++] = (byte) 0x81;
+	}
+	out[pos++] = (byte) length;
+	return pos;
+    }
+
+    /*
+     * Copies the INTEGER at 'pos' without leading zeros right-aligned into
+     * 'length' bytes of 'out', returns the position after the INTEGER.
+     */
+    private static int copyInteger(final byte[] xsig, int pos, final int end, final byte[] out, final int outOff,
+	    final int length) throws SignatureException {
+	pos = expectTag(xsig, pos, end, INTEGER_TAG);
+	final int valueLength = readLength(xsig, pos, end);
+	pos += lengthSize(xsig[pos]);
+	final int valueEnd = pos + valueLength;
+	if (valueLength == 0 || valueEnd > end) {
+	    throw new SignatureException("Invalid X9.62 signature, invalid INTEGER length");
+	}
+	int start = pos;
+	while (start < valueEnd && xsig[start] == 0) {
+	    start++;
+	}
+	final int significant = valueEnd - start;
+	if (significant > length) {
+	    throw new SignatureException("Value in X9.62 signature is longer than the curve order");
+	}
+	final int padding = length - significant;
+	for (int i = 0; i < padding; i++) {
+	    out[outOff + i] = 0;
+	}
+	System.arraycopy(xsig, start, out, outOff + padding, significant);
+	return valueEnd;
+    }
+
+    // Length of the INTEGER content for the unsigned value in 'value'
+    private static int integerLength(final byte[] value, final int off, final int len) {
+	int start = off;
+	final int end = off + len;
+	while (start < end - 1 && value[start] == 0) {
+	    start++;
+	}
+	// A leading zero is needed if the high bit is set
+	return end - start + ((value[start] & 0x80) != 0 ? 1 : 0);
+    }
+
+    // Writes an INTEGER with 'length' bytes of content for the unsigned value in
+    // 'value'
+    private static int writeInteger(final byte[] value, final int off, final int len, final int length,
+	    final byte[] out, int pos) {
+	out[pos++] = INTEGER_TAG;
+	pos = writeLength(length, out, pos);
+	final int end = off + len;
+	final int start = end - length;
+	if (start < off) {
+	    // Leading zero before a value with the high bit set
+	    out[pos++] = 0;
+	    System.arraycopy(value, off, out, pos, len);
+	    return pos + len;
+	}
+	System.arraycopy(value, start, out, pos, length);
+	return pos + length;
     }
 
 }
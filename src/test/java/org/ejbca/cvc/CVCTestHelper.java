@@ -0,0 +1,109 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Creates keys and certificates for the tests. The BC provider must be
+ * installed.
+ */
+final class CVCTestHelper implements CVCTest {
+
+    private CVCTestHelper() {
+    }
+
+    /**
+     * Returns a generator of 256 bit keys for "ECDSA" and 1024 bit keys for
+     * "RSA"
+     */
+    static KeyPairGenerator createKeyPairGenerator(String algorithm) throws Exception {
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance(algorithm, "BC");
+	keyGen.initialize("RSA".equals(algorithm) ? 1024 : 256, new SecureRandom());
+	return keyGen;
+    }
+
+    /**
+     * Returns the current time plus 'days'
+     */
+    static Date daysFromNow(int days) {
+	Calendar cal = Calendar.getInstance();
+	cal.add(Calendar.DAY_OF_MONTH, days);
+	return cal.getTime();
+    }
+
+    /**
+     * Creates a self-signed CVCA certificate signed with SHA256WithECDSA
+     */
+    static CVCertificate createCVCA(KeyPair keyPair) throws Exception {
+	return createCVCA(keyPair, "SHA256WithECDSA");
+    }
+
+    /**
+     * Creates a self-signed CVCA certificate
+     */
+    static CVCertificate createCVCA(KeyPair keyPair, String algorithm) throws Exception {
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(caRef.getCountry(), caRef.getMnemonic(),
+		caRef.getSequence());
+	return CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef, holderRef,
+		algorithm, AuthorizationRoleEnum.CVCA);
+    }
+
+    /**
+     * Creates a parsed certificate for 'mnemonic' issued by 'caMnemonic', valid
+     * for 10 days
+     */
+    static CVCertificate createCertificate(KeyPair keyPair, KeyPair signer, String caMnemonic, String mnemonic,
+	    AuthorizationRoleEnum role) throws Exception {
+	return createCertificate(keyPair, signer, caMnemonic, mnemonic, role, daysFromNow(10));
+    }
+
+    /**
+     * Creates a parsed certificate for 'mnemonic' issued by 'caMnemonic', valid
+     * until 'validTo'
+     */
+    static CVCertificate createCertificate(KeyPair keyPair, KeyPair signer, String caMnemonic, String mnemonic,
+	    AuthorizationRoleEnum role, Date validTo) throws Exception {
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, caMnemonic, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(CA_COUNTRY_CODE, mnemonic, CA_SEQUENCE_NO);
+	CVCertificate certificate = CertificateGenerator.createCertificate(keyPair.getPublic(), signer.getPrivate(),
+		"SHA256WithECDSA", caRef, holderRef, role, AccessRightEnum.READ_ACCESS_DG3_AND_DG4, new Date(),
+		validTo, "BC");
+	return CertificateParser.parseCertificate(certificate.getDEREncoded());
+    }
+
+    /**
+     * Creates an IS certificate issued by the test CA, valid for 3 days
+     */
+    static CVCertificate createISCertificate(PublicKey publicKey, KeyPair signer, String algorithm) throws Exception {
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	return createISCertificate(publicKey, signer, algorithm, caRef, holderRef, new Date(), daysFromNow(3));
+    }
+
+    /**
+     * Creates an IS certificate
+     */
+    static CVCertificate createISCertificate(PublicKey publicKey, KeyPair signer, String algorithm,
+	    CAReferenceField caRef, HolderReferenceField holderRef, Date validFrom, Date validTo) throws Exception {
+	return CertificateGenerator.createCertificate(publicKey, signer.getPrivate(), algorithm, caRef, holderRef,
+		AuthorizationRoleEnum.IS, AccessRightEnum.READ_ACCESS_DG3_AND_DG4, validFrom, validTo, "BC");
+    }
+
+}
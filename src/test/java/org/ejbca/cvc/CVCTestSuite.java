@@ -1,41 +1,57 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-import junit.framework.Test;
-import junit.framework.TestSuite;
-
-/**
- * Creates a JUnit test suite for all test cases
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: CVCTestSuite.java 6027 2008-08-13 12:56:09Z keijox $
- */
-public class CVCTestSuite {
-
-    public static Test suite() {
-	TestSuite suite = new TestSuite("cert-cvc test suite");
-
-	suite.addTestSuite(TestAlgorithmUtil.class);
-	suite.addTestSuite(TestFactories.class);
-	suite.addTestSuite(TestDatafields.class);
-	suite.addTestSuite(TestSequences.class);
-	suite.addTestSuite(TestPublicKey.class);
-	suite.addTestSuite(TestECCCVCertificate.class);
-	suite.addTestSuite(TestCVCRequest.class);
-	suite.addTestSuite(TestCVCertificate.class);
-
-	return suite;
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Creates a JUnit test suite for all test cases
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: CVCTestSuite.java 6027 2008-08-13 12:56:09Z keijox $
+ */
+public class CVCTestSuite {
+
+    public static Test suite() {
+	TestSuite suite = new TestSuite("cert-cvc test suite");
+
+	suite.addTestSuite(TestAlgorithmUtil.class);
+	suite.addTestSuite(TestBCECUtil.class);
+	suite.addTestSuite(TestFactories.class);
+	suite.addTestSuite(TestDatafields.class);
+	suite.addTestSuite(TestSequences.class);
+	suite.addTestSuite(TestPublicKey.class);
+	suite.addTestSuite(TestECCCVCertificate.class);
+	suite.addTestSuite(TestCVCRequest.class);
+	suite.addTestSuite(TestCVCertificate.class);
+	suite.addTestSuite(TestCVCertificateView.class);
+	suite.addTestSuite(TestBatchVerifier.class);
+	suite.addTestSuite(TestLightweightVerifier.class);
+	suite.addTestSuite(TestHotKeyRegistry.class);
+	suite.addTestSuite(TestChainValidator.class);
+	suite.addTestSuite(TestTrustStore.class);
+	suite.addTestSuite(TestVerificationCache.class);
+	suite.addTestSuite(TestParseCache.class);
+	suite.addTestSuite(TestCVCObjectReader.class);
+	suite.addTestSuite(TestMappedCertificateFile.class);
+	suite.addTestSuite(TestCertificateBundle.class);
+	suite.addTestSuite(TestCVCEventParser.class);
+	suite.addTestSuite(TestCVCObjectDecoder.class);
+	suite.addTestSuite(TestFreeze.class);
+	suite.addTestSuite(TestOffHeapCertificateStore.class);
+
+	return suite;
+    }
+
+}
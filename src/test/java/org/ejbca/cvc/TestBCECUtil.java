@@ -0,0 +1,145 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.util.encoders.Hex;
+import org.ejbca.cvc.util.BCECUtil;
+
+/**
+ * Tests the ECDSA signature conversion in BCECUtil
+ */
+public class TestBCECUtil extends TestCase implements CVCTest {
+
+    private static final String ALGORITHM = "SHA256WITHECDSA";
+    private static final int ORDER_LENGTH = 32;
+
+    /** Check: Conversion gives the same result as the BC ASN.1 classes, both ways */
+    public void testRoundTrip() throws Exception {
+	Random random = new Random(4711);
+	for (int i = 0; i < 200; i++) {
+	    // Vary the bit lengths to get leading zeros and values with the high bit set
+	    BigInteger r = new BigInteger(256 - random.nextInt(20), random);
+	    BigInteger s = new BigInteger(256 - random.nextInt(20), random);
+	    byte[] x962 = new DERSequence(vector(r, s)).getEncoded();
+
+	    byte[] cvc = BCECUtil.convertX962SigToCVC(ALGORITHM, x962, ORDER_LENGTH);
+	    assertEquals(2 * ORDER_LENGTH, cvc.length);
+	    assertEquals(r, new BigInteger(1, Arrays.copyOfRange(cvc, 0, ORDER_LENGTH)));
+	    assertEquals(s, new BigInteger(1, Arrays.copyOfRange(cvc, ORDER_LENGTH, cvc.length)));
+
+	    assertTrue("X9.62 signature differs", Arrays.equals(x962, BCECUtil.convertCVCSigToX962(ALGORITHM, cvc)));
+	}
+    }
+
+    /** Check: r and s are padded to the order length, not the longer of the two */
+    public void testPadToOrderLength() throws Exception {
+	byte[] x962 = new DERSequence(vector(BigInteger.valueOf(0x1234), BigInteger.valueOf(0x80))).getEncoded();
+	byte[] cvc = BCECUtil.convertX962SigToCVC(ALGORITHM, x962, 4);
+	assertEquals("0000123400000080", Hex.toHexString(cvc));
+
+	// Without order length the longer value decides
+	assertEquals("12340080", Hex.toHexString(BCECUtil.convertX962SigToCVC(ALGORITHM, x962)));
+    }
+
+    /** Check: The variants with offsets write into the given array */
+    public void testOffsets() throws Exception {
+	byte[] cvc = Hex.decode("00FF00010203");
+	byte[] sig = new byte[cvc.length + 3];
+	System.arraycopy(cvc, 0, sig, 3, cvc.length);
+
+	int x962Length = BCECUtil.getX962Length(sig, 3, cvc.length);
+	byte[] out = new byte[x962Length + 2];
+	assertEquals(x962Length, BCECUtil.convertCVCSigToX962(sig, 3, cvc.length, out, 2));
+	// r = 0x00FF00 needs a leading zero, s = 0x010203 doesn't
+	assertEquals("0000300a020300ff000203010203", Hex.toHexString(out));
+
+	byte[] back = new byte[cvc.length + 1];
+	assertEquals(cvc.length, BCECUtil.convertX962SigToCVC(out, 2, x962Length, 3, back, 1));
+	assertEquals("0000ff00010203", Hex.toHexString(back));
+    }
+
+    /** Check: Arrays of signatures are converted */
+    public void testBulk() throws Exception {
+	byte[][] x962 = new byte[][] { new DERSequence(vector(BigInteger.ONE, BigInteger.TEN)).getEncoded(),
+		new DERSequence(vector(BigInteger.TEN, BigInteger.ONE)).getEncoded() };
+	byte[][] cvc = BCECUtil.convertX962SigsToCVC(ALGORITHM, x962, 2);
+	assertEquals("0001000a", Hex.toHexString(cvc[0]));
+	assertEquals("000a0001", Hex.toHexString(cvc[1]));
+
+	byte[][] back = BCECUtil.convertCVCSigsToX962(ALGORITHM, cvc);
+	assertTrue(Arrays.equals(x962[0], back[0]));
+	assertTrue(Arrays.equals(x962[1], back[1]));
+
+	// Signatures of other algorithms are passed on
+	assertSame(x962[0], BCECUtil.convertCVCSigsToX962("SHA256WITHRSA", x962)[0]);
+    }
+
+    /** Check: Malformed signatures are rejected */
+    public void testMalformed() throws Exception {
+	try {
+	    BCECUtil.convertCVCSigToX962(ALGORITHM, new byte[3]);
+	    fail("Odd length should not be accepted");
+	} catch (SignatureException e) {
+	    // This is expected
+	}
+	byte[] x962 = new DERSequence(vector(BigInteger.valueOf(0x123456), BigInteger.ONE)).getEncoded();
+	try {
+	    BCECUtil.convertX962SigToCVC(ALGORITHM, x962, 2);
+	    fail("r is longer than the order");
+	} catch (IOException e) {
+	    // This is expected
+	}
+	try {
+	    BCECUtil.convertX962SigToCVC(ALGORITHM, Arrays.copyOf(x962, x962.length - 1), 4);
+	    fail("Truncated signature should not be accepted");
+	} catch (IOException e) {
+	    // This is expected
+	}
+	// Without an order length the value length is taken from the signature
+	for (int length = 0; length < x962.length; length++) {
+	    for (int orderLength = 0; orderLength <= 4; orderLength += 4) {
+		try {
+		    BCECUtil.convertX962SigToCVC(ALGORITHM, Arrays.copyOf(x962, length), orderLength);
+		    fail("Truncated signature should not be accepted: " + length);
+		} catch (IOException e) {
+		    // This is expected
+		}
+	    }
+	}
+	try {
+	    BCECUtil.convertX962SigToCVC(ALGORITHM, new byte[] { 0x30, (byte) 0x84, 0x02, 0x01 }, 0);
+	    fail("Invalid length should not be accepted");
+	} catch (IOException e) {
+	    // This is expected
+	}
+    }
+
+    private static ASN1EncodableVector vector(BigInteger r, BigInteger s) {
+	ASN1EncodableVector v = new ASN1EncodableVector();
+	v.add(new ASN1Integer(r));
+	v.add(new ASN1Integer(s));
+	return v;
+    }
+
+}
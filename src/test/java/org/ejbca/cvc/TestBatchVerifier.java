@@ -0,0 +1,146 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import static org.ejbca.cvc.CVCTestHelper.createCVCA;
+import static org.ejbca.cvc.CVCTestHelper.createISCertificate;
+import static org.ejbca.cvc.CVCTestHelper.createKeyPairGenerator;
+import static org.ejbca.cvc.CVCTestHelper.daysFromNow;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.SignatureException;
+import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Tests BatchVerifier
+ */
+public class TestBatchVerifier extends TestCase implements CVCTest {
+
+    private static final int CERT_COUNT = 40;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: All certificates are verified and failures are reported per certificate */
+    public void testVerifyWithIssuerKey() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	KeyPair caKeyPair = keyGen.generateKeyPair();
+	KeyPair otherKeyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	CVCertificate cvca = createCVCA(caKeyPair);
+
+	List<CVCertificate> certs = new ArrayList<CVCertificate>();
+	for (int i = 0; i < CERT_COUNT; i++) {
+	    // Every fifth certificate is signed by the wrong key
+	    KeyPair signer = i % 5 == 0 ? otherKeyPair : caKeyPair;
+	    certs.add(createCertificate(keyGen.generateKeyPair().getPublic(), signer, caRef, i));
+	}
+
+	ForkJoinPool pool = new ForkJoinPool(4);
+	try {
+	    // The public key of the parsed CVCA certificate must be converted for the provider
+	    PublicKey issuerKey = CertificateParser.parseCertificate(cvca.getDEREncoded()).getCertificateBody()
+		    .getPublicKey();
+	    List<VerificationResult> results = new BatchVerifier(pool, "BC").verify(certs, issuerKey);
+	    assertEquals(CERT_COUNT, results.size());
+	    for (int i = 0; i < CERT_COUNT; i++) {
+		VerificationResult result = results.get(i);
+		assertSame(certs.get(i), result.getCertificate());
+		if (i % 5 == 0) {
+		    assertFalse("Certificate " + i + " should be invalid", result.isValid());
+		    assertTrue(result.getFailure() instanceof SignatureException);
+		} else {
+		    assertTrue("Certificate " + i + " should be valid: " + result.getFailure(), result.isValid());
+		}
+	    }
+	} finally {
+	    pool.shutdown();
+	}
+    }
+
+    /** Check: Issuer keys are looked up by the CA reference of each certificate */
+    public void testVerifyWithIssuerMap() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("RSA");
+	KeyPair caKeyPair = keyGen.generateKeyPair();
+	KeyPair isKeyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	CAReferenceField unknownRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, "00999");
+
+	List<CVCertificate> certs = new ArrayList<CVCertificate>();
+	certs.add(createCertificate(isKeyPair.getPublic(), caKeyPair, caRef, 1));
+	certs.add(createCertificate(isKeyPair.getPublic(), caKeyPair, unknownRef, 2));
+	// A request without CA reference
+	certs.add(CertificateGenerator.createRequest(isKeyPair, "SHA256WithRSA", new HolderReferenceField(
+		HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO)));
+	certs.add(createCertificate(isKeyPair.getPublic(), caKeyPair, caRef, 3));
+
+	Map<String, PublicKey> issuerKeys = new HashMap<String, PublicKey>();
+	issuerKeys.put(caRef.getConcatenated(), caKeyPair.getPublic());
+
+	ExecutorService executor = Executors.newFixedThreadPool(2);
+	try {
+	    List<VerificationResult> results = new BatchVerifier(executor, "BC").verify(certs, issuerKeys);
+	    assertTrue(results.get(0).isValid());
+	    assertFalse(results.get(1).isValid());
+	    assertTrue(results.get(1).getFailure() instanceof CertificateException);
+	    assertFalse(results.get(2).isValid());
+	    assertTrue(results.get(2).getFailure() instanceof CertificateException);
+	    assertTrue(results.get(3).isValid());
+
+	    results = BatchVerifier.createLightweight(executor, null).verify(certs, issuerKeys);
+	    assertEquals(4, results.size());
+	    assertTrue(results.get(0).isValid());
+	    assertFalse(results.get(1).isValid());
+	    assertFalse(results.get(2).isValid());
+	    assertTrue(results.get(3).isValid());
+
+	    assertTrue(new BatchVerifier(executor, null)
+		    .verify(Collections.<CVCertificate> emptyList(), caKeyPair.getPublic()).isEmpty());
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    // Helper for creating an IS certificate
+    private CVCertificate createCertificate(PublicKey publicKey, KeyPair signer, CAReferenceField caRef, int no)
+	    throws Exception {
+	String algorithm = "RSA".equals(signer.getPublic().getAlgorithm()) ? "SHA256WithRSA" : "SHA256WithECDSA";
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC,
+		String.valueOf(10000 + no));
+	return createISCertificate(publicKey, signer, algorithm, caRef, holderRef, new Date(), daysFromNow(3));
+    }
+
+}
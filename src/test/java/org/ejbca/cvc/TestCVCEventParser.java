@@ -0,0 +1,227 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests CVCEventParser
+ */
+public class TestCVCEventParser extends TestCase implements CVCTest {
+
+    private CVCertificate cert;
+    private byte[] encoded;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("ECDSA", "BC");
+	keyGen.initialize(256, new SecureRandom());
+	KeyPair keyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	cert = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef, holderRef,
+		"SHA256WithECDSA", AuthorizationRoleEnum.CVCA);
+	encoded = cert.getDEREncoded();
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: All fields are reported in encoding order */
+    public void testEvents() throws Exception {
+	RecordingHandler handler = new RecordingHandler(null);
+	CVCEventParser.parse(encoded, handler);
+
+	List<String> expected = new ArrayList<String>();
+	expected.add("start " + CVCTagEnum.CV_CERTIFICATE);
+	expected.add("start " + CVCTagEnum.CERTIFICATE_BODY);
+	expected.add("field " + CVCTagEnum.PROFILE_IDENTIFIER);
+	expected.add("field " + CVCTagEnum.CA_REFERENCE);
+	expected.add("start " + CVCTagEnum.PUBLIC_KEY);
+	expected.add("field " + CVCTagEnum.OID);
+	expected.add("field " + CVCTagEnum.MODULUS);
+	// COEFFICIENT_A has the same tag value
+	expected.add("field " + CVCTagEnum.EXPONENT);
+	expected.add("field " + CVCTagEnum.COEFFICIENT_B);
+	expected.add("field " + CVCTagEnum.BASE_POINT_G);
+	expected.add("field " + CVCTagEnum.BASE_POINT_R_ORDER);
+	expected.add("field " + CVCTagEnum.PUBLIC_POINT_Y);
+	expected.add("field " + CVCTagEnum.COFACTOR_F);
+	expected.add("end " + CVCTagEnum.PUBLIC_KEY);
+	expected.add("field " + CVCTagEnum.HOLDER_REFERENCE);
+	expected.add("start " + CVCTagEnum.HOLDER_AUTH_TEMPLATE);
+	expected.add("field " + CVCTagEnum.OID);
+	expected.add("field " + CVCTagEnum.ROLE_AND_ACCESS_RIGHTS);
+	expected.add("end " + CVCTagEnum.HOLDER_AUTH_TEMPLATE);
+	expected.add("field " + CVCTagEnum.EFFECTIVE_DATE);
+	expected.add("field " + CVCTagEnum.EXPIRATION_DATE);
+	expected.add("end " + CVCTagEnum.CERTIFICATE_BODY);
+	expected.add("field " + CVCTagEnum.SIGNATURE);
+	expected.add("end " + CVCTagEnum.CV_CERTIFICATE);
+	assertEquals(expected, handler.events);
+
+	assertEquals(ByteBuffer.wrap(cert.getCertificateBody().getHolderReference().getEncoded()),
+		handler.holderReference);
+	assertEquals(ByteBuffer.wrap(cert.getCertificateBody().getDEREncoded()),
+		ByteBuffer.wrap(encoded, handler.bodyOffset, handler.bodyLength));
+	assertTrue(Arrays.equals(cert.getSignature(), toArray(handler.signature)));
+    }
+
+    /** Check: Skipped sequences are not reported */
+    public void testSkip() throws Exception {
+	RecordingHandler handler = new RecordingHandler(CVCTagEnum.PUBLIC_KEY);
+	CVCEventParser.parse(encoded, handler);
+	assertTrue(handler.events.contains("start " + CVCTagEnum.PUBLIC_KEY));
+	assertFalse(handler.events.contains("end " + CVCTagEnum.PUBLIC_KEY));
+	assertFalse(handler.events.contains("field " + CVCTagEnum.PUBLIC_POINT_Y));
+	assertTrue(handler.events.contains("field " + CVCTagEnum.HOLDER_REFERENCE));
+	assertTrue(handler.events.contains("field " + CVCTagEnum.SIGNATURE));
+
+	handler = new RecordingHandler(CVCTagEnum.CV_CERTIFICATE);
+	CVCEventParser.parse(encoded, handler);
+	assertEquals(1, handler.events.size());
+    }
+
+    /** Check: The position is advanced past the object and offsets are absolute */
+    public void testBufferPosition() throws Exception {
+	ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length * 2 + 3);
+	buffer.put(new byte[3]).put(encoded).put(encoded);
+	buffer.position(3);
+	RecordingHandler handler = new RecordingHandler(null);
+	CVCEventParser.parse(buffer, handler);
+	assertEquals(3 + encoded.length, buffer.position());
+	assertEquals(3, handler.certificateOffset);
+	CVCEventParser.parse(buffer, handler);
+	assertEquals(3 + encoded.length, handler.certificateOffset);
+	assertFalse(buffer.hasRemaining());
+    }
+
+    /** Check: Truncated and corrupt data is rejected */
+    public void testInvalidData() throws Exception {
+	try {
+	    CVCEventParser.parse(Arrays.copyOf(encoded, encoded.length - 1), new CVCEventAdapter() {
+	    });
+	    fail("Truncated data accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+
+	byte[] corrupt = encoded.clone();
+	// Length of the body exceeds the certificate
+	corrupt[7] = (byte) (corrupt[7] + 1);
+	try {
+	    CVCEventParser.parse(corrupt, new CVCEventAdapter() {
+	    });
+	    fail("Corrupt data accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+    }
+
+    /** Check: Deeply nested sequences are rejected instead of overflowing the stack */
+    public void testNestingDepth() throws Exception {
+	// An authenticated request nests four sequences
+	CVCAuthenticatedRequest authRequest = new CVCAuthenticatedRequest(cert, new CAReferenceField(CA_COUNTRY_CODE,
+		CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO));
+	RecordingHandler handler = new RecordingHandler(null);
+	CVCEventParser.parse(authRequest.getDEREncoded(), handler);
+	assertTrue(handler.events.contains("start " + CVCTagEnum.PUBLIC_KEY));
+	CVCEventParser.parse(nestedSequences(8), new CVCEventAdapter() {
+	});
+
+	for (int levels : new int[] { 9, 10000 }) {
+	    try {
+		CVCEventParser.parse(nestedSequences(levels), new CVCEventAdapter() {
+		});
+		fail(levels + " nested sequences accepted");
+	    } catch (ParseException e) {
+		// Expected
+	    }
+	}
+    }
+
+    // Creates 'levels' authenticated requests nested in each other
+    private static byte[] nestedSequences(int levels) {
+	ByteBuffer buffer = ByteBuffer.allocate(5 * levels);
+	for (int i = 0; i < levels; i++) {
+	    int length = 5 * (levels - i - 1);
+	    buffer.put(new byte[] { 0x67, (byte) 0x83, (byte) (length >> 16), (byte) (length >> 8), (byte) length });
+	}
+	return buffer.array();
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+	byte[] result = new byte[buffer.remaining()];
+	buffer.duplicate().get(result);
+	return result;
+    }
+
+    // Records the events and copies some of the values
+    private static class RecordingHandler implements CVCEventHandler {
+	final List<String> events = new ArrayList<String>();
+	final CVCTagEnum skip;
+	ByteBuffer holderReference;
+	ByteBuffer signature;
+	int certificateOffset = -1;
+	int bodyOffset = -1;
+	int bodyLength = -1;
+
+	RecordingHandler(CVCTagEnum skip) {
+	    this.skip = skip;
+	}
+
+	@Override
+	public boolean startSequence(CVCTagEnum tag, int offset, int length) {
+	    events.add("start " + tag);
+	    if (tag == CVCTagEnum.CV_CERTIFICATE) {
+		certificateOffset = offset;
+	    } else if (tag == CVCTagEnum.CERTIFICATE_BODY) {
+		bodyOffset = offset;
+		bodyLength = length;
+	    }
+	    return tag != skip;
+	}
+
+	@Override
+	public void field(CVCTagEnum tag, ByteBuffer value) {
+	    events.add("field " + tag);
+	    if (tag == CVCTagEnum.HOLDER_REFERENCE) {
+		holderReference = ByteBuffer.wrap(toArray(value));
+	    } else if (tag == CVCTagEnum.SIGNATURE) {
+		signature = ByteBuffer.wrap(toArray(value));
+	    }
+	}
+
+	@Override
+	public void endSequence(CVCTagEnum tag) {
+	    events.add("end " + tag);
+	}
+    }
+
+}
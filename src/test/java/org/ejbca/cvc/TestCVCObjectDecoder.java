@@ -0,0 +1,148 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests CVCObjectDecoder
+ */
+public class TestCVCObjectDecoder extends TestCase implements CVCTest {
+
+    private List<byte[]> encoded = new ArrayList<byte[]>();
+    private byte[] concatenated;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("ECDSA", "BC");
+	keyGen.initialize(256, new SecureRandom());
+	KeyPair keyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	CVCertificate cert = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef,
+		holderRef, "SHA256WithECDSA", AuthorizationRoleEnum.IS);
+	CVCertificate request = CertificateGenerator.createRequest(keyPair, "SHA256WithECDSA", caRef, holderRef);
+	CVCAuthenticatedRequest authRequest = CertificateGenerator.createAuthenticatedRequest(request,
+		keyGen.generateKeyPair(), "SHA256WithECDSA", caRef);
+	encoded.add(cert.getDEREncoded());
+	encoded.add(request.getDEREncoded());
+	encoded.add(authRequest.getDEREncoded());
+
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	for (byte[] der : encoded) {
+	    out.write(der);
+	}
+	concatenated = out.toByteArray();
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Objects split across chunks of any size are decoded */
+    public void testChunks() throws Exception {
+	checkChunks(new int[] { 1 });
+	checkChunks(new int[] { concatenated.length });
+	Random random = new Random();
+	for (int i = 0; i < 20; i++) {
+	    checkChunks(new int[] { 1 + random.nextInt(100), 1 + random.nextInt(500) });
+	}
+    }
+
+    /** Check: Objects longer than the maximum are rejected */
+    public void testTooLong() throws Exception {
+	CVCObjectDecoder decoder = new CVCObjectDecoder(encoded.get(0).length - 1);
+	try {
+	    decoder.decode(ByteBuffer.wrap(concatenated, 0, 4));
+	    fail("Too long object accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+	assertFalse(decoder.isPending());
+    }
+
+    /** Check: Decoding continues after an object that can't be parsed */
+    public void testCorruptObject() throws Exception {
+	byte[] data = concatenated.clone();
+	// Change the tag of the certificate body
+	data[5] = 0x42;
+	CVCObjectDecoder decoder = new CVCObjectDecoder();
+	ByteBuffer input = ByteBuffer.wrap(data);
+	try {
+	    decoder.decode(input);
+	    fail("Corrupt object accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+	assertEquals(encoded.get(0).length, input.position());
+	assertTrue(Arrays.equals(encoded.get(1), ((CVCertificate) decoder.decode(input)).getDEREncoded()));
+    }
+
+    // Feeds 'concatenated' in direct buffers of the given sizes in turn
+    private void checkChunks(int[] sizes) throws Exception {
+	CVCObjectDecoder decoder = new CVCObjectDecoder();
+	List<CVCObject> objects = new ArrayList<CVCObject>();
+	ByteBuffer chunk = ByteBuffer.allocateDirect(concatenated.length);
+	int offset = 0;
+	for (int i = 0; offset < concatenated.length; i++) {
+	    int size = Math.min(sizes[i % sizes.length], concatenated.length - offset);
+	    chunk.clear();
+	    chunk.put(concatenated, offset, size);
+	    chunk.flip();
+	    offset += size;
+	    CVCObject object;
+	    while ((object = decoder.decode(chunk)) != null) {
+		objects.add(object);
+	    }
+	    assertFalse(chunk.hasRemaining());
+	    assertEquals(offset < concatenated.length && !isObjectEnd(offset), decoder.isPending());
+	}
+
+	assertEquals(3, objects.size());
+	assertTrue(objects.get(0) instanceof CVCertificate);
+	assertTrue(objects.get(1) instanceof CVCertificate);
+	assertTrue(objects.get(2) instanceof CVCAuthenticatedRequest);
+	for (int i = 0; i < 3; i++) {
+	    assertTrue(Arrays.equals(encoded.get(i), ((AbstractSequence) objects.get(i)).getDEREncoded()));
+	}
+    }
+
+    private boolean isObjectEnd(int offset) {
+	int end = 0;
+	for (byte[] der : encoded) {
+	    end += der.length;
+	    if (end == offset) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+}
@@ -0,0 +1,150 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests CVCObjectReader
+ */
+public class TestCVCObjectReader extends TestCase implements CVCTest {
+
+    private CVCertificate cert;
+    private CVCertificate request;
+    private CVCAuthenticatedRequest authRequest;
+    private byte[] concatenated;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("ECDSA", "BC");
+	keyGen.initialize(256, new SecureRandom());
+	KeyPair keyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	cert = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef, holderRef,
+		"SHA256WithECDSA", AuthorizationRoleEnum.IS);
+	request = CertificateGenerator.createRequest(keyPair, "SHA256WithECDSA", caRef, holderRef);
+	authRequest = CertificateGenerator.createAuthenticatedRequest(request, keyGen.generateKeyPair(),
+		"SHA256WithECDSA", caRef);
+
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	out.write(cert.getDEREncoded());
+	out.write(request.getDEREncoded());
+	out.write(authRequest.getDEREncoded());
+	concatenated = out.toByteArray();
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Concatenated objects are read one by one */
+    public void testRead() throws Exception {
+	// A stream returning one byte per read
+	InputStream in = new FilterInputStream(new ByteArrayInputStream(concatenated)) {
+	    @Override
+	    public int read(byte[] b, int off, int len) throws IOException {
+		return super.read(b, off, Math.min(len, 1));
+	    }
+	};
+	CVCObjectReader reader = new CVCObjectReader(in);
+	assertTrue(Arrays.equals(cert.getDEREncoded(), ((AbstractSequence) reader.read()).getDEREncoded()));
+	assertTrue(Arrays.equals(request.getDEREncoded(), ((AbstractSequence) reader.read()).getDEREncoded()));
+	CVCObject third = reader.read();
+	assertTrue(third instanceof CVCAuthenticatedRequest);
+	assertTrue(Arrays.equals(authRequest.getDEREncoded(), ((AbstractSequence) third).getDEREncoded()));
+	assertNull(reader.read());
+	reader.close();
+    }
+
+    /** Check: The reader iterates over a channel */
+    public void testIterator() throws Exception {
+	Iterator<CVCObject> iterator = new CVCObjectReader(Channels.newChannel(new ByteArrayInputStream(
+		concatenated)));
+	int count = 0;
+	while (iterator.hasNext()) {
+	    assertNotNull(iterator.next());
+	    count++;
+	}
+	assertEquals(3, count);
+	assertFalse(iterator.hasNext());
+    }
+
+    /** Check: Truncated and too long objects are rejected */
+    public void testInvalidInput() throws Exception {
+	CVCObjectReader reader = new CVCObjectReader(new ByteArrayInputStream(Arrays.copyOf(concatenated,
+		concatenated.length - 1)));
+	reader.read();
+	reader.read();
+	try {
+	    reader.read();
+	    fail("Truncated object read");
+	} catch (ParseException e) {
+	    // Expected
+	}
+
+	reader = new CVCObjectReader(Channels.newChannel(new ByteArrayInputStream(concatenated)), 100);
+	try {
+	    reader.read();
+	    fail("Too long object read");
+	} catch (ParseException e) {
+	    // Expected
+	}
+    }
+
+    /** Check: The certificate factory returns all certificates of a stream */
+    public void testCertificateFactory() throws Exception {
+	Security.addProvider(new CVCProvider());
+	try {
+	    ByteArrayOutputStream out = new ByteArrayOutputStream();
+	    out.write(cert.getDEREncoded());
+	    out.write(cert.getDEREncoded());
+	    CertificateFactory factory = CertificateFactory.getInstance("CVC");
+	    Collection<? extends Certificate> certs = factory.generateCertificates(new ByteArrayInputStream(out
+		    .toByteArray()));
+	    assertEquals(2, certs.size());
+	    assertTrue(factory.generateCertificates(new ByteArrayInputStream(new byte[0])).isEmpty());
+
+	    // One certificate at a time
+	    InputStream in = new ByteArrayInputStream(out.toByteArray());
+	    assertNotNull(factory.generateCertificate(in));
+	    assertNotNull(factory.generateCertificate(in));
+	    assertEquals(-1, in.read());
+	} finally {
+	    Security.removeProvider("CVC");
+	}
+    }
+
+}
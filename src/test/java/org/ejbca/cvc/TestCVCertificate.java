@@ -1,177 +1,347 @@
-/*************************************************************************
- *                                                                       *
- *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
- *                                                                       *
- *  This software is free software; you can redistribute it and/or       *
- *  modify it under the terms of the GNU Lesser General Public           *
- *  License as published by the Free Software Foundation; either         *
- *  version 2.1 of the License, or any later version.                    *
- *                                                                       *
- *  See terms of license at gnu.org.                                     *
- *                                                                       *
- *************************************************************************/
-package org.ejbca.cvc;
-
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.SecureRandom;
-import java.security.Security;
-import java.security.SignatureException;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateFactory;
-import java.util.Arrays;
-import java.util.Calendar;
-import java.util.Date;
-
-import junit.framework.TestCase;
-
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.ejbca.cvc.example.FileHelper;
-
-/**
- * Tests specific for CV Certificates
- * 
- * @author Keijo Kurkinen, Swedish National Police Board
- * @version $Id: TestCVCertificate.java 18548 2014-03-04 11:46:03Z samuellb $
- */
-public class TestCVCertificate extends TestCase implements CVCTest {
-
-    protected void setUp() throws Exception {
-	// Install Bouncy Castle as security provider
-	Security.addProvider(new BouncyCastleProvider());
-    }
-
-    protected void tearDown() throws Exception {
-	// Uninstall BC
-	Security.removeProvider("BC");
-    }
-
-    /**
-     * Check: DER-encoding/decoding of a CVCertificate should not affect its data
-     */
-    public void testEncoding() throws Exception {
-
-	CVCertificate cert1 = createTestCertificate();
-
-	byte[] pubkey1 = cert1.getCertificateBody().getPublicKey().getDEREncoded();
-
-	byte[] der = cert1.getDEREncoded();
-
-	CVCObject cvcObj = CertificateParser.parseCertificate(der);
-	assertTrue("Parsed object is not a CVCertificate: " + cvcObj.getTag(), (cvcObj instanceof CVCertificate));
-
-	CVCertificate cert2 = (CVCertificate) cvcObj;
-	assertEquals("Certificates as text differ", cert1.getAsText(), cert2.getAsText());
-
-	byte[] pubkey2 = cert2.getCertificateBody().getPublicKey().getDEREncoded();
-	assertTrue("DER-coded public keys not equal", Arrays.equals(pubkey1, pubkey2));
-    }
-
-    /** Check: The CVCertificate signature should be verifiable */
-    public void testVerifyCertificate() throws Exception {
-	// Create new key pair
-	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
-	keyGen.initialize(1024, new SecureRandom());
-	KeyPair keyPair = keyGen.generateKeyPair();
-
-	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
-	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
-
-	// This will create a self-signed certificate
-	CVCertificate cert = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(),
-		caRef, holderRef, "SHA1WithRSA", AuthorizationRoleEnum.IS);
-	cert.verify(keyPair.getPublic(), "BC");
-
-	CardVerifiableCertificate cvc = new CardVerifiableCertificate(cert);
-	cvc.verify(keyPair.getPublic(), "BC");
-    }
-
-    /** Check: Verify certificate chain */
-    public void testVerifyCertificateChain() throws Exception {
-	// Create key pair for CA
-	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
-	keyGen.initialize(1024, new SecureRandom());
-	KeyPair ca_KeyPair = keyGen.generateKeyPair();
-
-	// Simulate an IS certificate that has been signed by CA
-	// Create new key pair
-	keyGen.initialize(1024, new SecureRandom());
-	KeyPair is_KeyPair = keyGen.generateKeyPair();
-	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
-	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
-	Calendar cal = Calendar.getInstance();
-	Date dateFrom = cal.getTime();
-	cal.add(Calendar.DAY_OF_MONTH, 3);
-	Date dateTo = cal.getTime();
-	CVCertificate is_cert = CertificateGenerator.createCertificate(is_KeyPair.getPublic(), ca_KeyPair.getPrivate(),
-		"SHA256WithRSA", caRef, holderRef, AuthorizationRoleEnum.IS, AccessRightEnum.READ_ACCESS_DG3_AND_DG4,
-		dateFrom, dateTo, "BC");
-
-	try {
-	    is_cert.verify(is_KeyPair.getPublic(), "BC");
-	    throw new Exception("Verifying with holder's public key should not work!");
-	} catch (SignatureException e) {
-	    // This is expected
-
-	    is_cert.verify(ca_KeyPair.getPublic(), "BC");
-	}
-    }
-
-    /** Check: Validate CVCProvider */
-    public void testSecurityProvider() throws Exception {
-	Security.addProvider(new CVCProvider());
-
-	CVCertificate cvc = createTestCertificate();
-
-	CertificateFactory factory = CertificateFactory.getInstance("CVC");
-	ByteArrayInputStream bin = new ByteArrayInputStream(cvc.getDEREncoded());
-	Certificate cert = factory.generateCertificate(bin);
-
-	assertTrue("cert not a CardVerifiableCertificate", (cert instanceof CardVerifiableCertificate));
-
-	String expectedFormat = "CVC";
-	assertEquals("Type is not " + expectedFormat, expectedFormat, cert.getType());
-	assertEquals("Key format is not " + expectedFormat, expectedFormat, cert.getPublicKey().getFormat());
-
-	Security.removeProvider("CVC");
-    }
-
-    public void testExternalCert() throws Exception {
-	byte[] bytes = FileHelper.loadFile(new File("./src/test/resources/GO_CVCA_RSA2008.cvcert"));
-	CVCertificate cvc = (CVCertificate) CertificateParser.parseCVCObject(bytes);
-	CardVerifiableCertificate cvcacert = new CardVerifiableCertificate(cvc);
-	System.out.println("CERT\n: " + cvcacert.toString());
-	cvcacert.verify(cvc.getCertificateBody().getPublicKey(), "BC");
-
-    }
-
-    public void testEncodeAuthTermCert() throws Exception {
-	byte[] bytes = FileHelper.loadFile(new File("./src/test/resources/at_cert_19a.cvcert"));
-	CVCertificate cvc = (CVCertificate) CertificateParser.parseCVCObject(bytes);
-	CardVerifiableCertificate atcert = new CardVerifiableCertificate(cvc);
-
-	// Only CVCA certs have the full information needed to verify them,
-	// so just check that the bytes are encoded correctly
-	assertTrue("re-encoded data was not equal", Arrays.equals(cvc.getDEREncoded(), bytes));
-	assertTrue("re-encoded data was not equal", Arrays.equals(atcert.getEncoded(), bytes));
-	// atcert.verify(atcert.getPublicKey(), "BC");
-    }
-
-    // Helper for creating a test certificate
-    private CVCertificate createTestCertificate() throws Exception {
-	// Create new key pair
-	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
-	keyGen.initialize(1024, new SecureRandom());
-	KeyPair keyPair = keyGen.generateKeyPair();
-
-	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
-	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
-
-	// Call CertificateGenerator
-	return CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef, holderRef,
-		"SHA1WithRSA", AuthorizationRoleEnum.IS);
-    }
-
-}
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.example.FileHelper;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests specific for CV Certificates
+ * 
+ * @author Keijo Kurkinen, Swedish National Police Board
+ * @version $Id: TestCVCertificate.java 18548 2014-03-04 11:46:03Z samuellb $
+ */
+public class TestCVCertificate extends TestCase implements CVCTest {
+
+    protected void setUp() throws Exception {
+	// Install Bouncy Castle as security provider
+	Security.addProvider(new BouncyCastleProvider());
+    }
+
+    protected void tearDown() throws Exception {
+	// Uninstall BC
+	Security.removeProvider("BC");
+    }
+
+    /**
+     * Check: DER-encoding/decoding of a CVCertificate should not affect its data
+     */
+    public void testEncoding() throws Exception {
+
+	CVCertificate cert1 = createTestCertificate();
+
+	byte[] pubkey1 = cert1.getCertificateBody().getPublicKey().getDEREncoded();
+
+	byte[] der = cert1.getDEREncoded();
+
+	CVCObject cvcObj = CertificateParser.parseCertificate(der);
+	assertTrue("Parsed object is not a CVCertificate: " + cvcObj.getTag(), (cvcObj instanceof CVCertificate));
+
+	CVCertificate cert2 = (CVCertificate) cvcObj;
+	assertEquals("Certificates as text differ", cert1.getAsText(), cert2.getAsText());
+
+	byte[] pubkey2 = cert2.getCertificateBody().getPublicKey().getDEREncoded();
+	assertTrue("DER-coded public keys not equal", Arrays.equals(pubkey1, pubkey2));
+    }
+
+    /** Check: Parsing from an offset or a ByteBuffer should give the same certificate */
+    public void testParseFromBuffer() throws Exception {
+	byte[] der = createTestCertificate().getDEREncoded();
+	byte[] padded = new byte[der.length + 7];
+	System.arraycopy(der, 0, padded, 3, der.length);
+
+	CVCertificate cert1 = CertificateParser.parseCertificate(der);
+	CVCertificate cert2 = CertificateParser.parseCertificate(padded, 3, der.length);
+	assertEquals("Certificates as text differ", cert1.getAsText(), cert2.getAsText());
+
+	ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+	direct.put(padded);
+	direct.position(3);
+	CVCertificate cert3 = CertificateParser.parseCertificate(direct);
+	assertEquals("Certificates as text differ", cert1.getAsText(), cert3.getAsText());
+	assertEquals("Position not advanced past the certificate", 3 + der.length, direct.position());
+
+	// Increase the length of the first body field so that it extends past the body
+	byte[] corrupt = der.clone();
+	int profileLengthPos = 0;
+	while (corrupt[profileLengthPos] != 0x5F || corrupt[profileLengthPos + 1] != 0x29) {
+	    profileLengthPos++;
+	}
+	profileLengthPos += 2;
+	assertEquals(1, corrupt[profileLengthPos]);
+	corrupt[profileLengthPos] = 0x7F;
+	try {
+	    CertificateParser.parseCertificate(corrupt);
+	    fail("Field extending past its sequence should not be accepted");
+	} catch (ParseException e) {
+	    // This is expected
+	}
+	try {
+	    CertificateParser.parseCertificate(der, 0, der.length - 1);
+	    fail("Truncated certificate should not be accepted");
+	} catch (ParseException e) {
+	    // This is expected
+	}
+    }
+
+    /** Check: The CVCertificate signature should be verifiable */
+    public void testVerifyCertificate() throws Exception {
+	// Create new key pair
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
+	keyGen.initialize(1024, new SecureRandom());
+	KeyPair keyPair = keyGen.generateKeyPair();
+
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+
+	// This will create a self-signed certificate
+	CVCertificate cert = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(),
+		caRef, holderRef, "SHA1WithRSA", AuthorizationRoleEnum.IS);
+	cert.verify(keyPair.getPublic(), "BC");
+
+	CardVerifiableCertificate cvc = new CardVerifiableCertificate(cert);
+	cvc.verify(keyPair.getPublic(), "BC");
+    }
+
+    /** Check: Certificates can be created and verified with a provider instance */
+    public void testProviderInstance() throws Exception {
+	Provider provider = new BouncyCastleProvider();
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", provider);
+	keyGen.initialize(1024, new SecureRandom());
+	KeyPair caKeyPair = keyGen.generateKeyPair();
+	KeyPair isKeyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	Calendar cal = Calendar.getInstance();
+	Date dateFrom = cal.getTime();
+	cal.add(Calendar.DAY_OF_MONTH, 3);
+	CVCertificate cert = CertificateGenerator.createCertificate(isKeyPair.getPublic(), caKeyPair.getPrivate(),
+		"SHA256WithRSA", caRef, holderRef, AuthorizationRoleEnum.IS, AccessRightEnum.READ_ACCESS_DG3_AND_DG4,
+		dateFrom, cal.getTime(), provider);
+
+	// The cached Signature instances must be usable repeatedly
+	for (int i = 0; i < 3; i++) {
+	    cert.verify(caKeyPair.getPublic(), provider);
+	    cert.verify(caKeyPair.getPublic(), "BC");
+	    try {
+		new CardVerifiableCertificate(cert).verify(isKeyPair.getPublic(), provider);
+		fail("Verifying with holder's public key should not work");
+	    } catch (SignatureException e) {
+		// This is expected
+	    }
+	}
+    }
+
+    /** Check: Cached Signature instances follow the installed providers and are limited */
+    public void testSignatureCacheProviders() throws Exception {
+	Signature installed = SignatureCache.getInstance("SHA256WithRSA", "BC");
+	assertSame(Security.getProvider("BC"), installed.getProvider());
+	assertSame(installed, SignatureCache.getInstance("SHA256WithRSA", "BC"));
+
+	// A provider removed and added again is not used after the next check
+	Security.removeProvider("BC");
+	Provider replacement = new BouncyCastleProvider();
+	Security.addProvider(replacement);
+	Signature current = installed;
+	for (int i = 0; i < SignatureCache.CHECK_INTERVAL && current == installed; i++) {
+	    current = SignatureCache.getInstance("SHA256WithRSA", "BC");
+	}
+	assertSame(replacement, current.getProvider());
+	assertSame(current, SignatureCache.getInstance("SHA256WithRSA", "BC"));
+
+	// Instances requested by provider instance are not returned by name
+	Provider other = new BouncyCastleProvider();
+	assertSame(other, SignatureCache.getInstance("SHA256WithRSA", other).getProvider());
+	assertSame(current, SignatureCache.getInstance("SHA256WithRSA", "BC"));
+
+	// One instance per provider name, however many provider instances are used
+	for (int i = 0; i < 10; i++) {
+	    Provider provider = new BouncyCastleProvider();
+	    assertSame(provider, SignatureCache.getInstance("SHA256WithRSA", provider).getProvider());
+	}
+	int size = SignatureCache.size();
+	SignatureCache.getInstance("SHA256WithRSA", new BouncyCastleProvider());
+	assertEquals(size, SignatureCache.size());
+	assertTrue(size <= SignatureCache.MAX_SIZE);
+    }
+
+    /** Check: Verify certificate chain */
+    public void testVerifyCertificateChain() throws Exception {
+	// Create key pair for CA
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
+	keyGen.initialize(1024, new SecureRandom());
+	KeyPair ca_KeyPair = keyGen.generateKeyPair();
+
+	// Simulate an IS certificate that has been signed by CA
+	// Create new key pair
+	keyGen.initialize(1024, new SecureRandom());
+	KeyPair is_KeyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	Calendar cal = Calendar.getInstance();
+	Date dateFrom = cal.getTime();
+	cal.add(Calendar.DAY_OF_MONTH, 3);
+	Date dateTo = cal.getTime();
+	CVCertificate is_cert = CertificateGenerator.createCertificate(is_KeyPair.getPublic(), ca_KeyPair.getPrivate(),
+		"SHA256WithRSA", caRef, holderRef, AuthorizationRoleEnum.IS, AccessRightEnum.READ_ACCESS_DG3_AND_DG4,
+		dateFrom, dateTo, "BC");
+
+	try {
+	    is_cert.verify(is_KeyPair.getPublic(), "BC");
+	    throw new Exception("Verifying with holder's public key should not work!");
+	} catch (SignatureException e) {
+	    // This is expected
+
+	    is_cert.verify(ca_KeyPair.getPublic(), "BC");
+	}
+    }
+
+    /** Check: Validate CVCProvider */
+    public void testSecurityProvider() throws Exception {
+	Security.addProvider(new CVCProvider());
+
+	CVCertificate cvc = createTestCertificate();
+
+	CertificateFactory factory = CertificateFactory.getInstance("CVC");
+	ByteArrayInputStream bin = new ByteArrayInputStream(cvc.getDEREncoded());
+	Certificate cert = factory.generateCertificate(bin);
+
+	assertTrue("cert not a CardVerifiableCertificate", (cert instanceof CardVerifiableCertificate));
+
+	String expectedFormat = "CVC";
+	assertEquals("Type is not " + expectedFormat, expectedFormat, cert.getType());
+	assertEquals("Key format is not " + expectedFormat, expectedFormat, cert.getPublicKey().getFormat());
+
+	Security.removeProvider("CVC");
+    }
+
+    public void testExternalCert() throws Exception {
+	byte[] bytes = FileHelper.loadFile(new File("./src/test/resources/GO_CVCA_RSA2008.cvcert"));
+	CVCertificate cvc = (CVCertificate) CertificateParser.parseCVCObject(bytes);
+	CardVerifiableCertificate cvcacert = new CardVerifiableCertificate(cvc);
+	System.out.println("CERT\n: " + cvcacert.toString());
+	cvcacert.verify(cvc.getCertificateBody().getPublicKey(), "BC");
+
+    }
+
+    public void testEncodeAuthTermCert() throws Exception {
+	byte[] bytes = FileHelper.loadFile(new File("./src/test/resources/at_cert_19a.cvcert"));
+	CVCertificate cvc = (CVCertificate) CertificateParser.parseCVCObject(bytes);
+	CardVerifiableCertificate atcert = new CardVerifiableCertificate(cvc);
+
+	// Only CVCA certs have the full information needed to verify them,
+	// so just check that the bytes are encoded correctly
+	assertTrue("re-encoded data was not equal", Arrays.equals(cvc.getDEREncoded(), bytes));
+	assertTrue("re-encoded data was not equal", Arrays.equals(atcert.getEncoded(), bytes));
+	// atcert.verify(atcert.getPublicKey(), "BC");
+    }
+
+    /** Check: A parsed certificate returns the bytes it was parsed from until it is modified */
+    public void testRetainedEncoding() throws Exception {
+	byte[] bytes = FileHelper.loadFile(new File("./src/test/resources/GO_CVCA_RSA2008.cvcert"));
+	CVCertificateView view = new CVCertificateView(bytes);
+	// The signature follows the body in the certificate
+	ByteBuffer signature = view.getField(CVCTagEnum.CV_CERTIFICATE);
+	signature.position(view.getTBS().remaining());
+
+	// Re-build the certificate with a non-minimal length of the body
+	int bodyLength = view.getField(CVCTagEnum.CERTIFICATE_BODY).remaining();
+	ByteBuffer nonMinimalBody = ByteBuffer.allocate(2 + 4 + bodyLength);
+	nonMinimalBody.put((byte) 0x7F).put((byte) 0x4E).put((byte) 0x83).put((byte) 0).putShort((short) bodyLength);
+	nonMinimalBody.put(view.getField(CVCTagEnum.CERTIFICATE_BODY));
+	byte[] tbs = nonMinimalBody.array();
+
+	int certLength = tbs.length + signature.remaining();
+	ByteBuffer cert = ByteBuffer.allocate(2 + 3 + certLength);
+	cert.put((byte) 0x7F).put((byte) 0x21).put((byte) 0x82).putShort((short) certLength);
+	cert.put(tbs);
+	cert.put(signature);
+	byte[] nonCanonical = cert.array();
+
+	CVCertificate cvc = CertificateParser.parseCertificate(nonCanonical);
+	assertTrue("TBS is not the parsed data", Arrays.equals(tbs, cvc.getTBS()));
+	assertTrue("encoding is not the parsed data", Arrays.equals(nonCanonical, cvc.getDEREncoded()));
+
+	// The returned arrays are copies
+	cvc.getTBS()[0] = 0;
+	assertTrue("TBS is not the parsed data", Arrays.equals(tbs, cvc.getTBS()));
+
+	// Modifying a field drops the retained encoding
+	IntegerField profileId = (IntegerField) cvc.getCertificateBody().getSubfield(CVCTagEnum.PROFILE_IDENTIFIER);
+	profileId.setValue(profileId.getValue());
+	byte[] reEncoded = cvc.getDEREncoded();
+	assertTrue("encoding is not canonical", Arrays.equals(bytes, reEncoded));
+	CertificateParser.parseCertificate(reEncoded).verify(cvc.getCertificateBody().getPublicKey(), "BC");
+    }
+
+    /** Check: Changing the access rights or the data of a parsed certificate changes its encoding */
+    public void testModifiedRights() throws Exception {
+	byte[] bytes = FileHelper.loadFile(new File("./src/test/resources/at_cert_19a.cvcert"));
+	CVCertificate cvc = CertificateParser.parseCertificate(bytes);
+	AuthorizationField authField = cvc.getCertificateBody().getAuthorizationTemplate().getAuthorizationField();
+	AccessRightAuthTerm rights = (AccessRightAuthTerm) authField.getAccessRights();
+	boolean flag = rights.getFlag(AccessRightAuthTerm.BIT_PIN_MANAGEMENT);
+	rights.setFlag(AccessRightAuthTerm.BIT_PIN_MANAGEMENT, !flag);
+
+	byte[] tbs = cvc.getTBS();
+	assertFalse("encoding was not changed", Arrays.equals(bytes, cvc.getDEREncoded()));
+	CVCertificate reparsed = CertificateParser.parseCertificate(cvc.getDEREncoded());
+	assertTrue("TBS is not the encoded body", Arrays.equals(tbs, reparsed.getTBS()));
+	AccessRightAuthTerm reparsedRights = (AccessRightAuthTerm) reparsed.getCertificateBody()
+		.getAuthorizationTemplate().getAuthorizationField().getAccessRights();
+	assertEquals(!flag, reparsedRights.getFlag(AccessRightAuthTerm.BIT_PIN_MANAGEMENT));
+
+	// Rights passed to a new field are copied if another field uses them
+	AuthorizationField other = new AuthorizationField(AuthorizationRoleAuthTermEnum.AUTHTERM, rights);
+	assertNotSame(rights, other.getAccessRights());
+
+	// The signature can't be modified through the getter
+	cvc.getSignature()[0] ^= 1;
+	assertTrue("encoding was changed", Arrays.equals(cvc.getDEREncoded(), reparsed.getDEREncoded()));
+    }
+
+    // Helper for creating a test certificate
+    private CVCertificate createTestCertificate() throws Exception {
+	// Create new key pair
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
+	keyGen.initialize(1024, new SecureRandom());
+	KeyPair keyPair = keyGen.generateKeyPair();
+
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+
+	// Call CertificateGenerator
+	return CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef, holderRef,
+		"SHA1WithRSA", AuthorizationRoleEnum.IS);
+    }
+
+}
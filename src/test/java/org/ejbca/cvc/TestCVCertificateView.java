@@ -0,0 +1,186 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.example.FileHelper;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests CVCertificateView
+ */
+public class TestCVCertificateView extends TestCase implements CVCTest {
+
+    protected void setUp() throws Exception {
+	// Install Bouncy Castle as security provider
+	Security.addProvider(new BouncyCastleProvider());
+    }
+
+    protected void tearDown() throws Exception {
+	// Uninstall BC
+	Security.removeProvider("BC");
+    }
+
+    /** Check: The view should return the same data as the parsed certificate */
+    public void testViewFields() throws Exception {
+	CVCertificate cert = createTestCertificate();
+	byte[] der = cert.getDEREncoded();
+
+	CVCertificateView view = new CVCertificateView(der);
+	assertTrue("TBS differ", Arrays.equals(cert.getTBS(), toBytes(view.getTBS())));
+	assertTrue("Signatures differ", Arrays.equals(cert.getSignature(), toBytes(view.getSignature())));
+	assertTrue("Encoding differ", Arrays.equals(der, toBytes(view.getEncoded())));
+
+	CVCertificateBody body = cert.getCertificateBody();
+	assertEquals(body.getHolderReference().getConcatenated(), new String(toBytes(view.getHolderReference())));
+	assertEquals(body.getAuthorityReference().getConcatenated(),
+		new String(toBytes(view.getAuthorityReference())));
+	assertTrue("Dates differ", Arrays.equals(
+		((DateField) body.getSubfield(CVCTagEnum.EXPIRATION_DATE)).getEncoded(),
+		toBytes(view.getExpirationDate())));
+
+	assertEquals(cert.getAsText(), view.toCertificate().getAsText());
+    }
+
+    /** Check: A view of a direct buffer with surrounding data */
+    public void testDirectBuffer() throws Exception {
+	byte[] der = FileHelper.loadFile(new File("./src/test/resources/GO_CVCA_RSA2008.cvcert"));
+	ByteBuffer buffer = ByteBuffer.allocateDirect(der.length + 20);
+	buffer.position(10);
+	buffer.put(der);
+	buffer.position(10);
+
+	CVCertificateView view = new CVCertificateView(buffer);
+	assertEquals(10, buffer.position());
+	assertTrue("Encoding differ", Arrays.equals(der, toBytes(view.getEncoded())));
+
+	CVCertificate cert = CertificateParser.parseCertificate(der);
+	assertTrue("TBS differ", Arrays.equals(cert.getTBS(), toBytes(view.getTBS())));
+	assertEquals(cert.getCertificateBody().getHolderReference().getConcatenated(),
+		new String(toBytes(view.getHolderReference())));
+    }
+
+    /** Check: A request has no dates */
+    public void testRequest() throws Exception {
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
+	keyGen.initialize(1024, new SecureRandom());
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	CVCertificate request = CertificateGenerator.createRequest(keyGen.generateKeyPair(), "SHA256WithRSA",
+		holderRef);
+
+	CVCertificateView view = new CVCertificateView(request.getDEREncoded());
+	assertNull(view.getAuthorityReference());
+	assertNull(view.getEffectiveDate());
+	assertNull(view.getExpirationDate());
+	assertEquals(holderRef.getConcatenated(), new String(toBytes(view.getHolderReference())));
+    }
+
+    /** Check: Corrupt data should give a ParseException */
+    public void testCorruptData() throws Exception {
+	byte[] der = createTestCertificate().getDEREncoded();
+	try {
+	    new CVCertificateView(Arrays.copyOf(der, der.length - 10)).getSignature();
+	    fail("Truncated data should not be accepted");
+	} catch (ParseException e) {
+	    // This is expected
+	}
+	try {
+	    new CVCertificateView(Arrays.copyOfRange(der, 5, der.length)).getTBS();
+	    fail("Body without certificate should not be accepted");
+	} catch (ParseException e) {
+	    // This is expected
+	}
+    }
+
+    /** Check: Only the fields of a certificate body are accepted in the body */
+    public void testBodyFields() throws Exception {
+	CVCertificateView view = new CVCertificateView(createTestCertificate().getDEREncoded());
+	byte[] body = toBytes(view.getField(CVCTagEnum.CERTIFICATE_BODY));
+	byte[] signature = toBytes(view.getSignature());
+
+	byte[] der = tlv(0x7F21, tlv(0x7F4E, body), tlv(0x5F37, signature));
+	assertTrue("Encoding differ", Arrays.equals(toBytes(view.getEncoded()), der));
+	assertTrue("Signatures differ", Arrays.equals(signature, toBytes(new CVCertificateView(der).getSignature())));
+
+	byte[][] corrupt = new byte[][] {
+		// Signature inside the body only
+		tlv(0x7F21, tlv(0x7F4E, body, tlv(0x5F37, signature))),
+		// Signature inside the body and after it
+		tlv(0x7F21, tlv(0x7F4E, body, tlv(0x5F37, signature)), tlv(0x5F37, signature)),
+		// Modulus of a public key in the body
+		tlv(0x7F21, tlv(0x7F4E, body, tlv(0x81, new byte[] { 1 })), tlv(0x5F37, signature)) };
+	for (int i = 0; i < corrupt.length; i++) {
+	    try {
+		new CVCertificateView(corrupt[i]).getSignature();
+		fail("Field not allowed in the body should not be accepted: " + i);
+	    } catch (ParseException e) {
+		// This is expected
+	    }
+	}
+    }
+
+    // Encodes a field with a two byte tag (or one byte if less than 0x100)
+    private static byte[] tlv(int tag, byte[]... values) {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	if (tag > 0xFF) {
+	    out.write(tag >> 8);
+	}
+	out.write(tag);
+	int length = 0;
+	for (byte[] value : values) {
+	    length += value.length;
+	}
+	if (length >= 0x100) {
+	    out.write(0x82);
+	    out.write(length >> 8);
+	} else if (length >= 0x80) {
+	    out.write(0x81);
+	}
+	out.write(length);
+	for (byte[] value : values) {
+	    out.write(value, 0, value.length);
+	}
+	return out.toByteArray();
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+	byte[] bytes = new byte[buffer.remaining()];
+	buffer.get(bytes);
+	return bytes;
+    }
+
+    // Helper for creating a test certificate
+    private CVCertificate createTestCertificate() throws Exception {
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", "BC");
+	keyGen.initialize(1024, new SecureRandom());
+	KeyPair keyPair = keyGen.generateKeyPair();
+
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+
+	return CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef, holderRef,
+		"SHA1WithRSA", AuthorizationRoleEnum.IS);
+    }
+
+}
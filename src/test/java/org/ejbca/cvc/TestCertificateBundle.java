@@ -0,0 +1,141 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests CertificateBundle and CertificateBundleWriter
+ */
+public class TestCertificateBundle extends TestCase implements CVCTest {
+
+    private static final int CERT_COUNT = 10;
+
+    private List<CVCertificate> certificates = new ArrayList<CVCertificate>();
+    private File file;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("ECDSA", "BC");
+	keyGen.initialize(256, new SecureRandom());
+	KeyPair keyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	// Added in descending order, the index must be sorted anyway
+	for (int i = CERT_COUNT - 1; i >= 0; i--) {
+	    HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC,
+		    String.valueOf(10000 + i));
+	    certificates.add(CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef,
+		    holderRef, "SHA256WithECDSA", AuthorizationRoleEnum.IS));
+	}
+	file = File.createTempFile("certs", ".cvcb");
+	CertificateBundleWriter writer = new CertificateBundleWriter(file);
+	try {
+	    for (CVCertificate certificate : certificates) {
+		writer.add(certificate);
+	    }
+	} finally {
+	    writer.close();
+	}
+    }
+
+    protected void tearDown() throws Exception {
+	file.delete();
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: All certificates can be found by holder reference */
+    public void testLookup() throws Exception {
+	CertificateBundle bundle = new CertificateBundle(file);
+	try {
+	    assertEquals(CERT_COUNT, bundle.size());
+	    for (CVCertificate certificate : certificates) {
+		HolderReferenceField holderRef = certificate.getCertificateBody().getHolderReference();
+		byte[] der = certificate.getDEREncoded();
+		assertEquals(ByteBuffer.wrap(der), bundle.getEncoded(holderRef.getConcatenated()));
+		assertEquals(ByteBuffer.wrap(der), bundle.getEncoded(holderRef));
+		assertEquals(ByteBuffer.wrap(holderRef.getEncoded()),
+			bundle.getView(holderRef.getConcatenated()).getHolderReference());
+		assertTrue(Arrays.equals(der, bundle.getCertificate(holderRef.getConcatenated()).getDEREncoded()));
+	    }
+	    assertNull(bundle.getEncoded(HR_COUNTRY_CODE + HR_HOLDER_MNEMONIC + "09999"));
+	    assertNull(bundle.getEncoded(HR_COUNTRY_CODE + HR_HOLDER_MNEMONIC + "1000"));
+	    assertNull(bundle.getView("ZZZZZZZZZZZZZZZZ"));
+	    assertNull(bundle.getCertificate(""));
+	} finally {
+	    bundle.close();
+	}
+    }
+
+    /** Check: Duplicate holder references are rejected */
+    public void testDuplicate() throws Exception {
+	CertificateBundleWriter writer = new CertificateBundleWriter(file);
+	try {
+	    writer.add(certificates.get(0));
+	    try {
+		writer.add(certificates.get(0));
+		fail("Duplicate holder reference accepted");
+	    } catch (IllegalArgumentException e) {
+		// Expected
+	    }
+	} finally {
+	    writer.close();
+	}
+	CertificateBundle bundle = new CertificateBundle(file);
+	try {
+	    assertEquals(1, bundle.size());
+	} finally {
+	    bundle.close();
+	}
+    }
+
+    /** Check: Files that are no valid bundles are rejected */
+    public void testInvalidFile() throws Exception {
+	RandomAccessFile raf = new RandomAccessFile(file, "rw");
+	raf.setLength(raf.length() - 1);
+	raf.close();
+	try {
+	    new CertificateBundle(file);
+	    fail("Truncated bundle accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+
+	raf = new RandomAccessFile(file, "rw");
+	raf.write('X');
+	raf.close();
+	try {
+	    new CertificateBundle(file);
+	    fail("Invalid magic accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+    }
+
+}
@@ -0,0 +1,148 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import static org.ejbca.cvc.CVCTestHelper.createCertificate;
+import static org.ejbca.cvc.CVCTestHelper.createKeyPairGenerator;
+import static org.ejbca.cvc.CVCTestHelper.daysFromNow;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateExpiredException;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Tests ChainValidator
+ */
+public class TestChainValidator extends TestCase implements CVCTest {
+
+    private KeyPairGenerator keyGen;
+    private KeyPair cvcaKeyPair;
+    private KeyPair dvKeyPair;
+    private CVCertificate cvca;
+    private CVCertificate dv;
+    private Date validTo;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	keyGen = createKeyPairGenerator("ECDSA");
+	cvcaKeyPair = keyGen.generateKeyPair();
+	dvKeyPair = keyGen.generateKeyPair();
+	validTo = daysFromNow(10);
+	cvca = createCertificate(cvcaKeyPair, cvcaKeyPair, "CVCA", "CVCA", AuthorizationRoleEnum.CVCA, validTo);
+	dv = createCertificate(dvKeyPair, cvcaKeyPair, "CVCA", "DV", AuthorizationRoleEnum.DV_D, validTo);
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Chains are validated and the DV is taken from the cache */
+    public void testValidate() throws Exception {
+	ChainValidator validator = new ChainValidator(Collections.singletonList(cvca), "BC");
+	List<CVCertificate> intermediates = Collections.singletonList(dv);
+
+	KeyPair isKeyPair = keyGen.generateKeyPair();
+	CVCertificate is = createCertificate(isKeyPair, dvKeyPair, "DV", "IS1", AuthorizationRoleEnum.IS, validTo);
+	assertNull(((PublicKeyEC) is.getCertificateBody().getPublicKey()).getParams());
+	CVCPublicKey isKey = validator.validate(is, intermediates);
+	// The domain parameters are inherited from the CVCA
+	PublicKeyEC ecKey = (PublicKeyEC) isKey;
+	assertEquals(((ECPublicKey) cvcaKeyPair.getPublic()).getParams().getOrder(), ecKey.getParams().getOrder());
+	assertEquals(((ECPublicKey) isKeyPair.getPublic()).getW(), ecKey.getW());
+	assertEquals(1, validator.getCacheSize());
+
+	// The DV is known now, no intermediates needed
+	CVCertificate is2 = createCertificate(keyGen.generateKeyPair(), dvKeyPair, "DV", "IS2",
+		AuthorizationRoleEnum.IS, validTo);
+	validator.validate(is2, null);
+
+	// Same result when verifying with the lightweight API
+	HotKeyRegistry hotKeys = new HotKeyRegistry();
+	hotKeys.register((PublicKeyEC) cvca.getCertificateBody().getPublicKey());
+	ChainValidator lightweight = ChainValidator.createLightweight(Collections.singletonList(cvca), 10, hotKeys);
+	assertEquals(ecKey.getW(), ((PublicKeyEC) lightweight.validate(is, intermediates)).getW());
+
+	validator.clearCache();
+	try {
+	    validator.validate(is2, null);
+	    fail("Issuer should not be found");
+	} catch (CertificateException e) {
+	    // Expected
+	}
+    }
+
+    /** Check: Signatures, roles and dates are checked */
+    public void testInvalidChains() throws Exception {
+	ChainValidator validator = new ChainValidator(Collections.singletonList(cvca), "BC", 0);
+	List<CVCertificate> intermediates = Collections.singletonList(dv);
+
+	// Signed by the wrong key
+	CVCertificate forged = createCertificate(keyGen.generateKeyPair(), keyGen.generateKeyPair(), "DV", "IS1",
+		AuthorizationRoleEnum.IS, validTo);
+	try {
+	    validator.validate(forged, intermediates);
+	    fail("Forged certificate validated");
+	} catch (SignatureException e) {
+	    // Expected
+	}
+
+	// IS issued by the CVCA
+	CVCertificate is = createCertificate(keyGen.generateKeyPair(), cvcaKeyPair, "CVCA", "IS1",
+		AuthorizationRoleEnum.IS, validTo);
+	try {
+	    validator.validate(is, intermediates);
+	    fail("IS issued by CVCA validated");
+	} catch (CertificateException e) {
+	    // Expected
+	}
+
+	// Expired DV
+	Calendar cal = Calendar.getInstance();
+	cal.setTime(validTo);
+	cal.add(Calendar.DAY_OF_MONTH, 1);
+	CVCertificate valid = createCertificate(keyGen.generateKeyPair(), dvKeyPair, "DV", "IS1",
+		AuthorizationRoleEnum.IS, validTo);
+	try {
+	    validator.validate(valid, intermediates, cal.getTime());
+	    fail("Expired chain validated");
+	} catch (CertificateExpiredException e) {
+	    // Expected
+	}
+	assertEquals(0, validator.getCacheSize());
+
+	// Trust anchors must be CVCA certificates
+	try {
+	    new ChainValidator(Arrays.asList(cvca, dv), null);
+	    fail("DV accepted as trust anchor");
+	} catch (CertificateException e) {
+	    // Expected
+	}
+    }
+
+}
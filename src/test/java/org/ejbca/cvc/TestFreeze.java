@@ -0,0 +1,166 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.File;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.example.FileHelper;
+
+/**
+ * Tests freezing of sequences
+ */
+public class TestFreeze extends TestCase implements CVCTest {
+
+    private KeyPair keyPair;
+    private CVCertificate cert;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("ECDSA", "BC");
+	keyGen.initialize(256, new SecureRandom());
+	keyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	cert = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef, holderRef,
+		"SHA256WithECDSA", AuthorizationRoleEnum.CVCA);
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: A created certificate keeps its encoding and can't be modified when frozen */
+    public void testFreezeCreated() throws Exception {
+	byte[] der = cert.getDEREncoded();
+	byte[] tbs = cert.getTBS();
+	assertFalse(cert.isFrozen());
+	assertSame(cert, cert.freeze());
+	assertSame(cert, cert.freeze());
+
+	CVCertificateBody body = cert.getCertificateBody();
+	assertTrue(cert.isFrozen());
+	assertTrue(body.isFrozen());
+	assertTrue(body.getPublicKey().isFrozen());
+	assertTrue(body.getHolderReference().isFrozen());
+	assertTrue(body.hasEncoded());
+	assertTrue(body.getPublicKey().hasEncoded());
+	assertTrue(Arrays.equals(der, cert.getDEREncoded()));
+	assertTrue(Arrays.equals(tbs, cert.getTBS()));
+	cert.verify(keyPair.getPublic(), "BC");
+
+	try {
+	    cert.setSignature(new byte[] { 1, 2, 3 });
+	    fail("Frozen certificate modified");
+	} catch (UnsupportedOperationException e) {
+	    // Expected
+	}
+	try {
+	    ((IntegerField) body.getSubfield(CVCTagEnum.PROFILE_IDENTIFIER)).setValue(1);
+	    fail("Frozen field modified");
+	} catch (UnsupportedOperationException e) {
+	    // Expected
+	}
+	try {
+	    ((ByteField) body.getPublicKey().getSubfield(CVCTagEnum.MODULUS)).setShowBitLength(true);
+	    fail("Frozen field modified");
+	} catch (UnsupportedOperationException e) {
+	    // Expected
+	}
+	try {
+	    new CVCAuthenticatedRequest(cert, new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO));
+	    fail("Frozen certificate added to another sequence");
+	} catch (UnsupportedOperationException e) {
+	    // Expected
+	}
+	assertSame(cert, body.getParent());
+    }
+
+    /** Check: Parsed certificates can be frozen and ParseCache returns frozen certificates */
+    public void testFreezeParsed() throws Exception {
+	byte[] der = cert.getDEREncoded();
+	CVCertificate parsed = CertificateParser.parseCertificate(der).freeze();
+	assertTrue(parsed.getCertificateBody().getPublicKey().isFrozen());
+	assertTrue(Arrays.equals(der, parsed.getDEREncoded()));
+	parsed.verify(keyPair.getPublic(), "BC");
+
+	CVCertificate cached = new ParseCache(10, 10000).parseCertificate(der);
+	assertTrue(cached.isFrozen());
+
+	// A copy is not frozen
+	CVCertificate copy = CertificateParser.parseCertificate(parsed.getDEREncoded());
+	assertFalse(copy.isFrozen());
+	copy.getCertificateBody().getPublicKey().getSubfield(CVCTagEnum.OID).setParent(null);
+    }
+
+    /** Check: The access rights of a frozen certificate can't be modified */
+    public void testFreezeAccessRights() throws Exception {
+	byte[] bytes = FileHelper.loadFile(new File("./src/test/resources/at_cert_19a.cvcert"));
+	CVCertificate parsed = CertificateParser.parseCertificate(bytes).freeze();
+	AccessRightAuthTerm rights = (AccessRightAuthTerm) parsed.getCertificateBody().getAuthorizationTemplate()
+		.getAuthorizationField().getAccessRights();
+	String text = parsed.getAsText();
+	boolean flag = rights.getFlag(AccessRightAuthTerm.BIT_PIN_MANAGEMENT);
+	try {
+	    rights.setFlag(AccessRightAuthTerm.BIT_PIN_MANAGEMENT, !flag);
+	    fail("Frozen access rights modified");
+	} catch (UnsupportedOperationException e) {
+	    // Expected
+	}
+	assertEquals(flag, rights.getFlag(AccessRightAuthTerm.BIT_PIN_MANAGEMENT));
+	assertEquals(text, parsed.getAsText());
+	assertTrue(Arrays.equals(bytes, parsed.getDEREncoded()));
+    }
+
+    /** Check: A frozen certificate can be used by several threads */
+    public void testSharedBetweenThreads() throws Exception {
+	final CVCertificate shared = cert.freeze();
+	final byte[] der = cert.getDEREncoded();
+	ExecutorService executor = Executors.newFixedThreadPool(4);
+	try {
+	    List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+	    for (int i = 0; i < 16; i++) {
+		results.add(executor.submit(new Callable<Boolean>() {
+		    @Override
+		    public Boolean call() throws Exception {
+			shared.verify(keyPair.getPublic(), "BC");
+			return Arrays.equals(der, shared.getDEREncoded())
+				&& shared.getCertificateBody().getPublicKey().getFingerprint().length == 32;
+		    }
+		}));
+	    }
+	    for (Future<Boolean> result : results) {
+		assertTrue(result.get());
+	    }
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+}
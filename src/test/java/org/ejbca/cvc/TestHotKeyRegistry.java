@@ -0,0 +1,186 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import static org.ejbca.cvc.CVCTestHelper.createCVCA;
+import static org.ejbca.cvc.CVCTestHelper.createISCertificate;
+import static org.ejbca.cvc.CVCTestHelper.createKeyPairGenerator;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.SignatureException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.jcajce.provider.asymmetric.util.ECUtil;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Tests HotKeyRegistry
+ */
+public class TestHotKeyRegistry extends TestCase implements CVCTest {
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Certificates are verified with the tables of a registered key */
+    public void testVerifyWithRegisteredKey() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	KeyPair caKeyPair = keyGen.generateKeyPair();
+	CVCertificate cvca = createCVCA(caKeyPair);
+	PublicKeyEC caKey = (PublicKeyEC) CertificateParser.parseCertificate(cvca.getDEREncoded())
+		.getCertificateBody().getPublicKey();
+
+	HotKeyRegistry hotKeys = new HotKeyRegistry();
+	hotKeys.register(caKey);
+	assertTrue(hotKeys.isRegistered(caKey));
+	assertTrue(hotKeys.getMemoryUsage() > 0);
+	// The key of another instance of the certificate is found too
+	assertTrue(hotKeys.isRegistered((PublicKeyEC) cvca.getCertificateBody().getPublicKey()));
+
+	for (String algorithm : new String[] { "SHA1WithECDSA", "SHA256WithECDSA", "SHA512WithECDSA" }) {
+	    CVCertificate cert = createISCertificate(keyGen.generateKeyPair().getPublic(), caKeyPair, algorithm);
+	    cert.verifyLightweight(caKey, hotKeys);
+
+	    CVCertificate forged = createISCertificate(keyGen.generateKeyPair().getPublic(), keyGen.generateKeyPair(),
+		    algorithm);
+	    try {
+		forged.verifyLightweight(caKey, hotKeys);
+		fail("Forged certificate verified");
+	    } catch (SignatureException e) {
+		// Expected
+	    }
+	}
+
+	assertTrue(hotKeys.unregister(caKey));
+	assertFalse(hotKeys.isRegistered(caKey));
+	assertEquals(0, hotKeys.getMemoryUsage());
+    }
+
+    /** Check: Least recently used keys are dropped when the budget is exceeded */
+    public void testMemoryBudget() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	PublicKeyEC key1 = (PublicKeyEC) createCVCA(keyGen.generateKeyPair()).getCertificateBody().getPublicKey();
+	PublicKeyEC key2 = (PublicKeyEC) createCVCA(keyGen.generateKeyPair()).getCertificateBody().getPublicKey();
+	PublicKeyEC key3 = (PublicKeyEC) createCVCA(keyGen.generateKeyPair()).getCertificateBody().getPublicKey();
+
+	HotKeyRegistry hotKeys = new HotKeyRegistry();
+	hotKeys.register(key1);
+	long keySize = hotKeys.getMemoryUsage();
+	hotKeys.setMemoryBudget(2 * keySize);
+	hotKeys.register(key2);
+	// key1 was used more recently than key2
+	assertTrue(hotKeys.isRegistered(key1));
+	hotKeys.register(key3);
+	assertTrue(hotKeys.isRegistered(key1));
+	assertFalse(hotKeys.isRegistered(key2));
+	assertTrue(hotKeys.isRegistered(key3));
+	assertEquals(2 * keySize, hotKeys.getMemoryUsage());
+
+	hotKeys.setMemoryBudget(0);
+	assertEquals(0, hotKeys.getMemoryUsage());
+    }
+
+    /** Check: A key records its use only once between two registrations */
+    public void testUseRecordedPerRegistration() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	PublicKeyEC key1 = (PublicKeyEC) createCVCA(keyGen.generateKeyPair()).getCertificateBody().getPublicKey();
+	PublicKeyEC key2 = (PublicKeyEC) createCVCA(keyGen.generateKeyPair()).getCertificateBody().getPublicKey();
+	ECDomainParameters domain = ((ECPublicKeyParameters) key1.getKeyParameters()).getParameters();
+
+	HotKeyRegistry hotKeys = new HotKeyRegistry();
+	hotKeys.register(key1);
+	HotKeyRegistry.HotKey hotKey = hotKeys.find(key1.getFingerprint(), domain);
+	long used = hotKey.lastUsed;
+	assertSame(hotKey, hotKeys.find(key1.getFingerprint(), domain));
+	assertEquals(used, hotKey.lastUsed);
+
+	hotKeys.register(key2);
+	assertSame(hotKey, hotKeys.find(key1.getFingerprint(), domain));
+	assertTrue(hotKey.lastUsed > used);
+    }
+
+    /** Check: The tables give the same result as ECDSASigner, also for out of range values */
+    public void testVerifySignature() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	KeyPair keyPair = keyGen.generateKeyPair();
+	PublicKeyEC key = (PublicKeyEC) createCVCA(keyPair).getCertificateBody().getPublicKey();
+	ECPublicKeyParameters keyParameters = (ECPublicKeyParameters) key.getKeyParameters();
+	HotKeyRegistry.HotKey hotKey = new HotKeyRegistry.HotKey(key.getFingerprint(), keyParameters);
+	ECDSASigner reference = new ECDSASigner();
+	reference.init(false, keyParameters);
+	ECDSASigner signer = new ECDSASigner();
+	signer.init(true, ECUtil.generatePrivateKeyParameter(keyPair.getPrivate()));
+
+	BigInteger n = keyParameters.getParameters().getN();
+	Random random = new Random(4711);
+	// Hashes shorter than, as long as and longer than the order, the last one is zero
+	byte[][] hashes = new byte[][] { new byte[20], new byte[32], new byte[64], new byte[32] };
+	for (int i = 0; i < hashes.length; i++) {
+	    byte[] hash = hashes[i];
+	    if (i < hashes.length - 1) {
+		random.nextBytes(hash);
+	    }
+	    BigInteger[] signature = signer.generateSignature(hash);
+	    BigInteger r = signature[0];
+	    BigInteger s = signature[1];
+	    assertTrue(hotKey.verifySignature(hash, r, s));
+
+	    BigInteger[] values = new BigInteger[] { r, s, BigInteger.ZERO, BigInteger.ONE, n.subtract(BigInteger.ONE),
+		    n, n.add(BigInteger.ONE), r.add(n), s.add(n), r.negate(), s.negate(), n.negate(),
+		    BigInteger.ONE.shiftLeft(512), new BigInteger(256, random), new BigInteger(256, random) };
+	    for (BigInteger r2 : values) {
+		for (BigInteger s2 : values) {
+		    assertEquals("r = " + r2 + ", s = " + s2, reference.verifySignature(hash, r2, s2),
+			    hotKey.verifySignature(hash, r2, s2));
+		}
+	    }
+	}
+	for (int i = 0; i < 20; i++) {
+	    byte[] hash = new byte[32];
+	    random.nextBytes(hash);
+	    BigInteger r = new BigInteger(n.bitLength(), random);
+	    BigInteger s = new BigInteger(n.bitLength(), random);
+	    assertEquals(reference.verifySignature(hash, r, s), hotKey.verifySignature(hash, r, s));
+	}
+    }
+
+    /** Check: Registries are independent of each other */
+    public void testSeparateRegistries() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	PublicKeyEC key = (PublicKeyEC) createCVCA(keyGen.generateKeyPair()).getCertificateBody().getPublicKey();
+	HotKeyRegistry hotKeys = new HotKeyRegistry();
+	HotKeyRegistry other = new HotKeyRegistry(0);
+	hotKeys.register(key);
+	other.register(key);
+	assertTrue(hotKeys.isRegistered(key));
+	assertFalse(other.isRegistered(key));
+	hotKeys.clear();
+	assertFalse(hotKeys.isRegistered(key));
+	assertFalse(hotKeys.unregister(key));
+    }
+
+}
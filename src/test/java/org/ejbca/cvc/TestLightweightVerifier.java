@@ -0,0 +1,108 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import static org.ejbca.cvc.CVCTestHelper.createCVCA;
+import static org.ejbca.cvc.CVCTestHelper.createKeyPairGenerator;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.SignatureException;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Tests verifying with LightweightVerifier
+ */
+public class TestLightweightVerifier extends TestCase implements CVCTest {
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: ECDSA signatures are verified with the key of a parsed certificate */
+    public void testVerifyECDSA() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	for (String algorithm : new String[] { "SHA1WithECDSA", "SHA224WithECDSA", "SHA256WithECDSA",
+		"SHA384WithECDSA", "SHA512WithECDSA" }) {
+	    verifyCertificate(keyGen, algorithm);
+	}
+    }
+
+    /** Check: PKCS#1 and PSS signatures are verified */
+    public void testVerifyRSA() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("RSA");
+	for (String algorithm : new String[] { "SHA1WithRSA", "SHA256WithRSA", "SHA512WithRSA",
+		"SHA1WithRSAAndMGF1", "SHA256WithRSAAndMGF1" }) {
+	    verifyCertificate(keyGen, algorithm);
+	}
+    }
+
+    /** Check: Both signatures of an authenticated request are verified */
+    public void testVerifyAuthenticatedRequest() throws Exception {
+	KeyPairGenerator keyGen = createKeyPairGenerator("ECDSA");
+	KeyPair keyPair = keyGen.generateKeyPair();
+	KeyPair outerKeyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	CVCertificate request = CertificateGenerator.createRequest(keyPair, "SHA256WithECDSA", caRef, holderRef);
+	CVCAuthenticatedRequest authReq = CertificateGenerator.createAuthenticatedRequest(request, outerKeyPair,
+		"SHA256WithECDSA", caRef);
+
+	CVCAuthenticatedRequest parsed = (CVCAuthenticatedRequest) CertificateParser.parseCVCObject(authReq
+		.getDEREncoded());
+	parsed.verifyLightweight(outerKeyPair.getPublic());
+	CVCertificate innerRequest = parsed.getRequest();
+	innerRequest.verifyLightweight(innerRequest.getCertificateBody().getPublicKey());
+
+	try {
+	    parsed.verifyLightweight(keyPair.getPublic());
+	    fail("Request verified with the wrong key");
+	} catch (SignatureException e) {
+	    // Expected
+	}
+    }
+
+    // Verifies a CVCA certificate with its own key and the key of another CVCA
+    private void verifyCertificate(KeyPairGenerator keyGen, String algorithm) throws Exception {
+	KeyPair keyPair = keyGen.generateKeyPair();
+	CVCertificate cvca = createCVCA(keyPair, algorithm);
+	CVCertificate parsed = CertificateParser.parseCertificate(cvca.getDEREncoded());
+	CVCPublicKey cvcKey = parsed.getCertificateBody().getPublicKey();
+
+	parsed.verifyLightweight(cvcKey);
+	parsed.verifyLightweight(keyPair.getPublic());
+	// The key parameters are created once
+	assertSame(cvcKey.getKeyParameters(), cvcKey.getKeyParameters());
+	// The certificate verifies with the same result using JCA
+	parsed.verify(cvcKey, "BC");
+
+	CVCertificate other = createCVCA(keyGen.generateKeyPair(), algorithm);
+	try {
+	    parsed.verifyLightweight(other.getCertificateBody().getPublicKey());
+	    fail(algorithm + " verified with the wrong key");
+	} catch (SignatureException e) {
+	    // Expected
+	}
+    }
+
+}
@@ -0,0 +1,131 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests MappedCertificateFile
+ */
+public class TestMappedCertificateFile extends TestCase implements CVCTest {
+
+    private static final int CERT_COUNT = 10;
+
+    private List<byte[]> encoded = new ArrayList<byte[]>();
+    private File file;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("ECDSA", "BC");
+	keyGen.initialize(256, new SecureRandom());
+	file = File.createTempFile("certs", ".cvcert");
+	FileOutputStream out = new FileOutputStream(file);
+	try {
+	    for (int i = 0; i < CERT_COUNT; i++) {
+		KeyPair keyPair = keyGen.generateKeyPair();
+		CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+		HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC,
+			String.valueOf(10000 + i));
+		// Authorities have longer certificates
+		AuthorizationRoleEnum role = i % 3 == 0 ? AuthorizationRoleEnum.CVCA : AuthorizationRoleEnum.IS;
+		byte[] der = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef,
+			holderRef, "SHA256WithECDSA", role).getDEREncoded();
+		encoded.add(der);
+		out.write(der);
+	    }
+	} finally {
+	    out.close();
+	}
+    }
+
+    protected void tearDown() throws Exception {
+	file.delete();
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: All certificates are indexed and accessible */
+    public void testRandomAccess() throws Exception {
+	MappedCertificateFile mapped = new MappedCertificateFile(file);
+	try {
+	    checkContents(mapped);
+	} finally {
+	    mapped.close();
+	}
+    }
+
+    /** Check: Objects never span two regions */
+    public void testSeveralRegions() throws Exception {
+	// Room for two to three certificates per region
+	MappedCertificateFile mapped = new MappedCertificateFile(file, 3 * encoded.get(1).length);
+	try {
+	    checkContents(mapped);
+	} finally {
+	    mapped.close();
+	}
+
+	try {
+	    new MappedCertificateFile(file, encoded.get(0).length - 1);
+	    fail("Certificate larger than region accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+    }
+
+    /** Check: A truncated file is rejected */
+    public void testTruncatedFile() throws Exception {
+	FileOutputStream out = new FileOutputStream(file, true);
+	out.write(encoded.get(0), 0, 20);
+	out.close();
+	try {
+	    new MappedCertificateFile(file);
+	    fail("Truncated file accepted");
+	} catch (ParseException e) {
+	    // Expected
+	}
+    }
+
+    private void checkContents(MappedCertificateFile mapped) throws Exception {
+	assertEquals(CERT_COUNT, mapped.size());
+	for (int i = CERT_COUNT - 1; i >= 0; i--) {
+	    assertEquals(ByteBuffer.wrap(encoded.get(i)), mapped.getEncoded(i));
+	    CVCertificateView view = mapped.getView(i);
+	    assertEquals(ByteBuffer.wrap(String.valueOf(HR_COUNTRY_CODE + HR_HOLDER_MNEMONIC + (10000 + i)).getBytes()),
+		    view.getHolderReference());
+	    assertTrue(Arrays.equals(encoded.get(i), mapped.getCertificate(i).getDEREncoded()));
+	}
+	try {
+	    mapped.getView(CERT_COUNT);
+	    fail("Index out of bounds");
+	} catch (IndexOutOfBoundsException e) {
+	    // Expected
+	}
+    }
+
+}
@@ -0,0 +1,128 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests OffHeapCertificateStore
+ */
+public class TestOffHeapCertificateStore extends TestCase implements CVCTest {
+
+    private static final int CERT_COUNT = 20;
+
+    private List<CVCertificate> certificates = new ArrayList<CVCertificate>();
+    private KeyPair keyPair;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+
+	KeyPairGenerator keyGen = KeyPairGenerator.getInstance("ECDSA", "BC");
+	keyGen.initialize(256, new SecureRandom());
+	keyPair = keyGen.generateKeyPair();
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	for (int i = 0; i < CERT_COUNT; i++) {
+	    HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC,
+		    String.valueOf(10000 + i));
+	    certificates.add(CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(), caRef,
+		    holderRef, "SHA256WithECDSA", AuthorizationRoleEnum.IS));
+	}
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Certificates spread over several chunks and a grown index can be found */
+    public void testLookup() throws Exception {
+	int length = certificates.get(0).getDEREncoded().length;
+	// Room for three certificates per chunk, index starting with two slots
+	OffHeapCertificateStore store = new OffHeapCertificateStore(3 * (length + 20), 2);
+	for (CVCertificate certificate : certificates) {
+	    store.add(certificate);
+	}
+	assertEquals(CERT_COUNT, store.size());
+	assertTrue(store.getOffHeapSize() > CERT_COUNT * length);
+
+	for (CVCertificate certificate : certificates) {
+	    String holderRef = certificate.getCertificateBody().getHolderReference().getConcatenated();
+	    assertTrue(store.contains(holderRef));
+	    ByteBuffer encoded = store.getEncoded(holderRef);
+	    assertTrue(encoded.isDirect());
+	    assertTrue(encoded.isReadOnly());
+	    assertEquals(ByteBuffer.wrap(certificate.getDEREncoded()), encoded);
+
+	    CVCertificateView view = store.getView(holderRef);
+	    assertEquals(ByteBuffer.wrap(certificate.getCertificateBody().getHolderReference().getEncoded()),
+		    view.getHolderReference());
+	}
+	assertFalse(store.contains("SEUNKNOWN00001"));
+	assertNull(store.getEncoded("SEUNKNOWN00001"));
+	assertNull(store.getView("SEUNKNOWN00001"));
+    }
+
+    /** Check: Adding encoded data, replacing and clearing */
+    public void testAddEncoded() throws Exception {
+	OffHeapCertificateStore store = new OffHeapCertificateStore();
+	CVCertificate first = certificates.get(0);
+	String holderRef = first.getCertificateBody().getHolderReference().getConcatenated();
+	ByteBuffer data = ByteBuffer.wrap(first.getDEREncoded());
+	store.add(data);
+	assertEquals(0, data.position());
+	assertEquals(1, store.size());
+	assertEquals(data, store.getEncoded(holderRef));
+
+	// Same holder reference replaces the stored certificate
+	CVCertificate other = CertificateGenerator.createTestCertificate(keyPair.getPublic(), keyPair.getPrivate(),
+		first.getCertificateBody().getAuthorityReference(), first.getCertificateBody().getHolderReference(),
+		"SHA256WithECDSA", AuthorizationRoleEnum.DV_D);
+	store.add(other);
+	assertEquals(1, store.size());
+	assertEquals(ByteBuffer.wrap(other.getDEREncoded()), store.getEncoded(holderRef));
+
+	store.clear();
+	assertEquals(0, store.size());
+	assertNull(store.getEncoded(holderRef));
+    }
+
+    /** Check: Invalid input is rejected */
+    public void testInvalid() throws Exception {
+	OffHeapCertificateStore store = new OffHeapCertificateStore(64);
+	try {
+	    store.add(certificates.get(0));
+	    fail("Certificate longer than a chunk should be rejected");
+	} catch (IllegalArgumentException e) {
+	    // Expected
+	}
+	try {
+	    store.add(ByteBuffer.wrap(new byte[] { 0x7F, 0x21, 0x00 }));
+	    fail("Certificate without body should be rejected");
+	} catch (ParseException e) {
+	    // Expected
+	}
+	assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,128 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import static org.ejbca.cvc.CVCTestHelper.createCVCA;
+import static org.ejbca.cvc.CVCTestHelper.createKeyPairGenerator;
+
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.ejbca.cvc.exception.ParseException;
+
+/**
+ * Tests ParseCache
+ */
+public class TestParseCache extends TestCase implements CVCTest {
+
+    private KeyPairGenerator keyGen;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+	keyGen = createKeyPairGenerator("ECDSA");
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Equal input returns the cached certificate */
+    public void testCacheHit() throws Exception {
+	ParseCache cache = new ParseCache(100, 100000);
+	byte[] der = createCVCA(keyGen.generateKeyPair()).getDEREncoded();
+	CVCertificate cert = cache.parseCertificate(der);
+	assertTrue(Arrays.equals(der, cert.getDEREncoded()));
+	assertSame(cert, cache.parseCertificate(der.clone()));
+	assertEquals(1, cache.size());
+	assertEquals(der.length, cache.getCachedBytes());
+
+	// Modifying the input after parsing doesn't affect the cache
+	byte[] modified = der.clone();
+	modified[modified.length - 1] ^= 1;
+	CVCertificate other = cache.parseCertificate(modified);
+	assertNotSame(cert, other);
+	assertSame(cert, cache.parseCertificate(der));
+	assertEquals(2, cache.size());
+
+	// Errors are not cached
+	try {
+	    cache.parseCertificate(Arrays.copyOf(der, 10));
+	    fail("Truncated certificate parsed");
+	} catch (ParseException e) {
+	    // Expected
+	}
+	assertEquals(2, cache.size());
+
+	cache.clear();
+	assertEquals(0, cache.size());
+	assertEquals(0, cache.getCachedBytes());
+    }
+
+    /** Check: The cache is limited by entries and bytes */
+    public void testLimits() throws Exception {
+	ParseCache cache = new ParseCache(16, 1000000);
+	for (int i = 0; i < 40; i++) {
+	    cache.parseCertificate(createCVCA(keyGen.generateKeyPair()).getDEREncoded());
+	}
+	assertTrue(cache.size() <= 16);
+
+	byte[] der = createCVCA(keyGen.generateKeyPair()).getDEREncoded();
+	cache = new ParseCache(1000, 16L * der.length);
+	for (int i = 0; i < 40; i++) {
+	    cache.parseCertificate(createCVCA(keyGen.generateKeyPair()).getDEREncoded());
+	}
+	assertTrue(cache.getCachedBytes() <= 16L * der.length);
+
+	// Nothing is cached if no certificate fits
+	cache = new ParseCache(1000, 10);
+	cache.parseCertificate(der);
+	assertEquals(0, cache.size());
+    }
+
+    /** Check: Small caches keep exactly the maximum number of entries */
+    public void testSingleEntry() throws Exception {
+	ParseCache cache = new ParseCache(1, 1000000);
+	byte[] der1 = createCVCA(keyGen.generateKeyPair()).getDEREncoded();
+	byte[] der2 = createCVCA(keyGen.generateKeyPair()).getDEREncoded();
+	CVCertificate cert1 = cache.parseCertificate(der1);
+	assertSame(cert1, cache.parseCertificate(der1));
+	for (int i = 0; i < 20; i++) {
+	    cache.parseCertificate(createCVCA(keyGen.generateKeyPair()).getDEREncoded());
+	    assertEquals(1, cache.size());
+	}
+	CVCertificate cert2 = cache.parseCertificate(der2);
+	assertSame(cert2, cache.parseCertificate(der2));
+	assertNotSame(cert1, cache.parseCertificate(der1));
+	assertEquals(1, cache.size());
+	assertEquals(der1.length, cache.getCachedBytes());
+
+	// Other objects than certificates are rejected
+	CVCertificate request = CertificateGenerator.createRequest(keyGen.generateKeyPair(), "SHA256WithECDSA",
+		new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO));
+	byte[] authRequest = new CVCAuthenticatedRequest(request, new CAReferenceField(CA_COUNTRY_CODE,
+		CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO)).getDEREncoded();
+	try {
+	    cache.parseCertificate(authRequest);
+	    fail("Authenticated request parsed as certificate");
+	} catch (ParseException e) {
+	    // Expected
+	}
+    }
+
+}
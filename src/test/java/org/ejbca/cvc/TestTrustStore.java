@@ -0,0 +1,116 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import static org.ejbca.cvc.CVCTestHelper.createCertificate;
+import static org.ejbca.cvc.CVCTestHelper.createKeyPairGenerator;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Tests TrustStore
+ */
+public class TestTrustStore extends TestCase implements CVCTest {
+
+    private KeyPairGenerator keyGen;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+	keyGen = createKeyPairGenerator("ECDSA");
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Certificates are found by holder reference, CA reference and key */
+    public void testIndexes() throws Exception {
+	KeyPair cvcaKeyPair = keyGen.generateKeyPair();
+	KeyPair dvKeyPair = keyGen.generateKeyPair();
+	CVCertificate cvca = createCertificate(cvcaKeyPair, cvcaKeyPair, "CVCA", "CVCA", AuthorizationRoleEnum.CVCA);
+	CVCertificate dv = createCertificate(dvKeyPair, cvcaKeyPair, "CVCA", "DV", AuthorizationRoleEnum.DV_D);
+	List<CVCertificate> terminals = new ArrayList<CVCertificate>();
+	for (int i = 0; i < 5; i++) {
+	    terminals.add(createCertificate(keyGen.generateKeyPair(), dvKeyPair, "DV", "IS" + i,
+		    AuthorizationRoleEnum.IS));
+	}
+
+	TrustStore store = new TrustStore();
+	store.add(cvca);
+	store.add(dv);
+	store.addAll(terminals);
+	assertEquals(7, store.size());
+	assertEquals(7, store.getAll().size());
+
+	assertSame(dv, store.getIssuer(terminals.get(3)));
+	assertSame(cvca, store.getIssuer(dv));
+	assertSame(cvca, store.getByHolderReference(cvca.getCertificateBody().getHolderReference().getConcatenated()));
+	assertEquals(terminals, store.getByAuthorityReference(dv.getCertificateBody().getHolderReference()
+		.getConcatenated()));
+	assertTrue(store.getByAuthorityReference("SEUNKNOWN00001").isEmpty());
+
+	// Keys are found by the CVC key, the JCA key and a CVC key with inherited
+	// domain parameters
+	assertSame(dv, store.getByPublicKey(dv.getCertificateBody().getPublicKey()));
+	assertSame(dv, store.getByPublicKey(dvKeyPair.getPublic()));
+	assertSame(dv, store.getByPublicKey(new PublicKeyEC((PublicKeyEC) dv.getCertificateBody().getPublicKey(),
+		(PublicKeyEC) cvca.getCertificateBody().getPublicKey())));
+	assertNull(store.getByPublicKey(keyGen.generateKeyPair().getPublic()));
+
+	// Snapshots returned earlier are not modified
+	List<CVCertificate> issued = store.getByAuthorityReference(dv.getCertificateBody().getHolderReference()
+		.getConcatenated());
+	String removed = terminals.get(0).getCertificateBody().getHolderReference().getConcatenated();
+	assertSame(terminals.get(0), store.remove(removed));
+	assertNull(store.remove(removed));
+	assertNull(store.getByHolderReference(removed));
+	assertEquals(5, issued.size());
+	assertEquals(4, store.getByAuthorityReference(dv.getCertificateBody().getHolderReference().getConcatenated())
+		.size());
+	assertNull(store.getByPublicKey(terminals.get(0).getCertificateBody().getPublicKey()));
+
+	// A certificate with the same holder reference is replaced
+	CVCertificate renewed = createCertificate(keyGen.generateKeyPair(), dvKeyPair, "DV", "IS1",
+		AuthorizationRoleEnum.IS);
+	store.add(renewed);
+	assertEquals(6, store.size());
+	assertSame(renewed, store.getByHolderReference(renewed.getCertificateBody().getHolderReference()
+		.getConcatenated()));
+	assertNull(store.getByPublicKey(terminals.get(1).getCertificateBody().getPublicKey()));
+
+	// A key used in several certificates is still found when one of them is
+	// removed
+	CVCertificate dv2 = createCertificate(dvKeyPair, cvcaKeyPair, "CVCA", "DV2", AuthorizationRoleEnum.DV_D);
+	store.add(dv2);
+	assertSame(dv2, store.getByPublicKey(dvKeyPair.getPublic()));
+	store.remove(dv2.getCertificateBody().getHolderReference().getConcatenated());
+	assertSame(dv, store.getByPublicKey(dvKeyPair.getPublic()));
+	store.add(dv2);
+	store.remove(dv.getCertificateBody().getHolderReference().getConcatenated());
+	assertSame(dv2, store.getByPublicKey(dvKeyPair.getPublic()));
+
+	store.clear();
+	assertEquals(0, store.size());
+    }
+
+}
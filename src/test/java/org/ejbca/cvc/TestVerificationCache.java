@@ -0,0 +1,125 @@
+/*************************************************************************
+ *                                                                       *
+ *  CERT-CVC: EAC 1.11 Card Verifiable Certificate Library               * 
+ *                                                                       *
+ *  This software is free software; you can redistribute it and/or       *
+ *  modify it under the terms of the GNU Lesser General Public           *
+ *  License as published by the Free Software Foundation; either         *
+ *  version 2.1 of the License, or any later version.                    *
+ *                                                                       *
+ *  See terms of license at gnu.org.                                     *
+ *                                                                       *
+ *************************************************************************/
+package org.ejbca.cvc;
+
+import static org.ejbca.cvc.CVCTestHelper.createISCertificate;
+import static org.ejbca.cvc.CVCTestHelper.createKeyPairGenerator;
+import static org.ejbca.cvc.CVCTestHelper.daysFromNow;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Tests VerificationCache
+ */
+public class TestVerificationCache extends TestCase implements CVCTest {
+
+    private KeyPairGenerator keyGen;
+    private KeyPair caKeyPair;
+
+    protected void setUp() throws Exception {
+	// Install BC as provider
+	Security.addProvider(new BouncyCastleProvider());
+	keyGen = createKeyPairGenerator("ECDSA");
+	caKeyPair = keyGen.generateKeyPair();
+    }
+
+    protected void tearDown() throws Exception {
+	// Remove BC provider
+	Security.removeProvider("BC");
+    }
+
+    /** Check: Successful verifications are cached per certificate and key */
+    public void testCachedVerification() throws Exception {
+	VerificationCache cache = new VerificationCache(100, 60000);
+	CVCertificate cert = createCertificate(caKeyPair, 10);
+	assertFalse(cache.isVerified(cert, caKeyPair.getPublic()));
+	cache.verify(cert, caKeyPair.getPublic(), "BC");
+	assertTrue(cache.isVerified(cert, caKeyPair.getPublic()));
+	// The same certificate parsed again is found too
+	CVCertificate parsed = CertificateParser.parseCertificate(cert.getDEREncoded());
+	assertTrue(cache.isVerified(parsed, caKeyPair.getPublic()));
+	cache.verify(parsed, caKeyPair.getPublic(), "BC");
+	assertEquals(1, cache.size());
+
+	// Another key is not found and failures are not cached
+	KeyPair otherKeyPair = keyGen.generateKeyPair();
+	assertFalse(cache.isVerified(cert, otherKeyPair.getPublic()));
+	try {
+	    cache.verify(cert, otherKeyPair.getPublic(), "BC");
+	    fail("Certificate verified with wrong key");
+	} catch (SignatureException e) {
+	    // Expected
+	}
+	assertEquals(1, cache.size());
+
+	cache.clear();
+	assertFalse(cache.isVerified(cert, caKeyPair.getPublic()));
+    }
+
+    /** Check: Entries expire after the time to live or with the certificate */
+    public void testExpiry() throws Exception {
+	VerificationCache cache = new VerificationCache(100, 50);
+	CVCertificate cert = createCertificate(caKeyPair, 10);
+	cache.verify(cert, caKeyPair.getPublic(), "BC");
+	assertTrue(cache.isVerified(cert, caKeyPair.getPublic()));
+	Thread.sleep(100);
+	assertFalse(cache.isVerified(cert, caKeyPair.getPublic()));
+
+	// Expired certificates are verified but not cached
+	CVCertificate expired = createCertificate(caKeyPair, -2);
+	cache = new VerificationCache(100, 60000);
+	cache.verify(expired, caKeyPair.getPublic(), "BC");
+	assertFalse(cache.isVerified(expired, caKeyPair.getPublic()));
+	assertEquals(0, cache.size());
+    }
+
+    /** Check: The number of entries is bounded exactly, also for small caches */
+    public void testMaxEntries() throws Exception {
+	List<CVCertificate> certs = new ArrayList<CVCertificate>();
+	for (int i = 0; i < 40; i++) {
+	    certs.add(createCertificate(caKeyPair, 10));
+	}
+	for (int maxEntries : new int[] { 0, 1, 3, 16, 20 }) {
+	    VerificationCache cache = new VerificationCache(maxEntries, 60000);
+	    for (CVCertificate cert : certs) {
+		cache.verifyLightweight(cert, caKeyPair.getPublic(), null);
+		assertTrue("More than " + maxEntries + " entries", cache.size() <= maxEntries);
+	    }
+	}
+
+	VerificationCache cache = new VerificationCache(1, 60000);
+	cache.verifyLightweight(certs.get(0), caKeyPair.getPublic(), null);
+	cache.verifyLightweight(certs.get(1), caKeyPair.getPublic(), null);
+	assertEquals(1, cache.size());
+	assertFalse(cache.isVerified(certs.get(0), caKeyPair.getPublic()));
+	assertTrue(cache.isVerified(certs.get(1), caKeyPair.getPublic()));
+    }
+
+    // Creates a certificate expiring in 'days'
+    private CVCertificate createCertificate(KeyPair signer, int days) throws Exception {
+	CAReferenceField caRef = new CAReferenceField(CA_COUNTRY_CODE, CA_HOLDER_MNEMONIC, CA_SEQUENCE_NO);
+	HolderReferenceField holderRef = new HolderReferenceField(HR_COUNTRY_CODE, HR_HOLDER_MNEMONIC, HR_SEQUENCE_NO);
+	return createISCertificate(keyGen.generateKeyPair().getPublic(), signer, "SHA256WithECDSA", caRef,
+		holderRef, daysFromNow(days - 20), daysFromNow(days));
+    }
+
+}